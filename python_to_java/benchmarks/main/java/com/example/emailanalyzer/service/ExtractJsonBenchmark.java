@@ -0,0 +1,67 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.EmailAnalysisResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractJsonBenchmark {
+
+    @Param({"small", "large"})
+    private String answer;
+
+    private List<String> fragments;
+    private AnnotationConfigApplicationContext context;
+    private OllamaClient client;
+    private EmailAnalysisService service;
+
+    @Setup
+    public void setUp() {
+        String text = "small".equals(answer) ? SampleEmails.smallAnswer() : SampleEmails.largeAnswer(150);
+        fragments = SampleEmails.fragments(text, 4);
+        context = StubOllama.context(SampleEmails.ndjson(text));
+        client = context.getBean(OllamaClient.class);
+        service = context.getBean(EmailAnalysisService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public EmailAnalysisResponse accumulateAndExtract() {
+        CompletionAccumulator completion = new CompletionAccumulator();
+        for (String fragment : fragments) {
+            if (completion.append(fragment)) {
+                break;
+            }
+        }
+        return service.extractJsonFromResponse(completion);
+    }
+
+    // The whole response path: NDJSON chunks decoded from the stub body, then the answer mapped
+    @Benchmark
+    public EmailAnalysisResponse streamAndExtract() {
+        return service.extractJsonFromResponse(client.generate(new OllamaRequest("mistral", "")));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.emailanalyzer.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseEmlBenchmark {
+
+    @Param({"single-part", "multipart", "html-only", "attachment-2mb"})
+    private String message;
+
+    @Param({"javamail", "streaming"})
+    private String parser;
+
+    private byte[] eml;
+    private AnnotationConfigApplicationContext context;
+    private EmailAnalysisService service;
+
+    @Setup
+    public void setUp() {
+        eml = switch (message) {
+            case "single-part" -> SampleEmails.singlePart();
+            case "multipart" -> SampleEmails.multipartAlternative();
+            case "html-only" -> SampleEmails.htmlOnly();
+            case "attachment-2mb" -> SampleEmails.withAttachment(2 * 1024 * 1024);
+            default -> throw new IllegalArgumentException(message);
+        };
+        context = StubOllama.context(SampleEmails.ndjson(SampleEmails.smallAnswer()), Map.of("analysis.eml.parser", parser));
+        service = context.getBean(EmailAnalysisService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String parseEml() throws Exception {
+        return service.parseEml(eml);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.emailanalyzer.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mail.BodyPart;
+import javax.mail.Multipart;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch-import shape: many small mails parsed concurrently. Run with {@code -prof gc}
+ * to compare allocation per mail between the per-call setup and the shared parsers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ParserReuseBenchmark {
+
+    @Param({"single-part", "multipart"})
+    private String message;
+
+    private byte[] eml;
+    private JavaMailEmlParser javaMailEmlParser;
+    private StreamingEmlParser streamingEmlParser;
+
+    @Setup
+    public void setUp() {
+        eml = switch (message) {
+            case "single-part" -> SampleEmails.singlePart();
+            case "multipart" -> SampleEmails.multipartAlternative();
+            default -> throw new IllegalArgumentException(message);
+        };
+        javaMailEmlParser = new JavaMailEmlParser();
+        streamingEmlParser = new StreamingEmlParser(100_000);
+    }
+
+    // The parsing code as it was before the shared parsers: new Properties and Session lookup, copied content
+    @Benchmark
+    public String perCallSession() throws Exception {
+        Session session = Session.getDefaultInstance(new Properties(), null);
+        MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(eml));
+        StringBuilder text = new StringBuilder();
+        StreamingEmlParser.appendSenderAndSubject(text, message.getHeader("From", ", "), message.getHeader("Subject", null));
+        if (message.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) message.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                BodyPart bodyPart = multipart.getBodyPart(i);
+                if (bodyPart.isMimeType("text/plain")) {
+                    text.append(bodyPart.getContent().toString());
+                }
+            }
+        } else {
+            text.append(message.getContent().toString());
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public String sharedJavaMail() throws Exception {
+        return javaMailEmlParser.parse(eml);
+    }
+
+    @Benchmark
+    public String pooledStreaming() throws Exception {
+        return streamingEmlParser.parse(new ByteArrayInputStream(eml));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.EmailAnalysisResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptBenchmark {
+
+    @Param({"1", "20"})
+    private int bodyRepeat;
+
+    private String emailText;
+    private String emailWithFooter;
+    private EmailTextCleaner cleaner;
+    private TokenBudget tokenBudget;
+    private ExtractedFields hints;
+    private AnnotationConfigApplicationContext context;
+    private EmailAnalysisService service;
+
+    @Setup
+    public void setUp() {
+        emailText = SampleEmails.longBody(bodyRepeat);
+        emailWithFooter = emailText + SampleEmails.FOOTER;
+        cleaner = new EmailTextCleaner();
+        tokenBudget = new TokenBudget(new StandardEnvironment(), 4096, 512);
+        context = StubOllama.context(SampleEmails.ndjson(SampleEmails.smallAnswer()));
+        service = context.getBean(EmailAnalysisService.class);
+        hints = new FieldExtractor().extract(emailText);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return service.buildPrompt(emailText, hints);
+    }
+
+    @Benchmark
+    public String cleanEmail() {
+        return cleaner.clean(emailWithFooter);
+    }
+
+    // A budget well below the long email, so its lines are ranked and cut
+    @Benchmark
+    public String fitToBudget() {
+        return tokenBudget.fit(emailText, 200);
+    }
+
+    @Benchmark
+    public EmailAnalysisResponse analyzeEmailWithStubModel() {
+        return service.analyzeEmail(emailText);
+    }
+}
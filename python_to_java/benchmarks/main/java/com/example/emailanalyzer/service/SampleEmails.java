@@ -0,0 +1,164 @@
+package com.example.emailanalyzer.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+final class SampleEmails {
+
+    static final String ORDER_BODY = """
+            Hi Priya,
+
+            Thank you for shopping with us! Your order #1213608 has been confirmed.
+
+            Item                      Qty   Price
+            Cotton Shirt (Blue, M)     1    Rs. 1,299.00
+            Slim Fit Jeans (32)        1    Rs. 2,499.00
+            Subtotal                        Rs. 3,798.00
+            Shipping                        Rs. 50.00
+            Grand Total: Rs. 3,848.00
+
+            Shipping address:
+            Priya Sharma, 12 MG Road, Indiranagar
+            Bengaluru, Karnataka - 560038
+            Phone: +91 98765 43210
+
+            Track your order in the app. Need help? Reply to this email.
+            """;
+
+    // The kind of footer order confirmations carry below the useful part
+    static final String FOOTER = """
+
+            Track your order: https://track.example.in/t?id=1213608&utm_source=email&utm_medium=transactional
+            Shop the sale <https://www.example.in/sale?utm_source=email&utm_campaign=order_confirmation>
+
+            Follow us on Instagram | Facebook | X
+            Download the app on Google Play and the App Store
+
+            This email and any attachments are confidential and intended solely for the use of the
+            intended recipient. If you have received it in error, please notify the sender and delete it.
+            Any review, retransmission or dissemination of this information is prohibited.
+
+            \u00A9 2024 Example Retail Pvt Ltd. All rights reserved. Privacy Policy | Terms of Use
+            You are receiving this email because you placed an order with us. Unsubscribe <https://www.example.in/u?t=x>
+            This is an automatically generated email, please do not reply.
+
+            --
+            Example Retail customer care
+            """;
+
+    private static final String SMALL_ANSWER = """
+            {
+              "label": "Order",
+              "extracted_content": {
+                "products": ["Cotton Shirt", "Slim Fit Jeans"],
+                "amount": 3848.00,
+                "shipping_address": {
+                  "address_line1": "12 MG Road",
+                  "address_line2": "Indiranagar",
+                  "city": "Bengaluru",
+                  "state": "Karnataka",
+                  "pincode": "560038",
+                  "phone_number": "+91 98765 43210"
+                },
+                "billing_address": null
+              }
+            }""";
+
+    private SampleEmails() {
+    }
+
+    static byte[] singlePart() {
+        return message("Content-Type: text/plain; charset=UTF-8\r\n\r\n" + crlf(ORDER_BODY));
+    }
+
+    static byte[] multipartAlternative() {
+        String html = "<html><body><p>" + ORDER_BODY.replace("\n", "<br>\n") + "</p></body></html>";
+        return message("Content-Type: multipart/alternative; boundary=\"alt\"\r\n\r\n"
+                + "--alt\r\nContent-Type: text/plain; charset=UTF-8\r\n\r\n" + crlf(ORDER_BODY) + "\r\n"
+                + "--alt\r\nContent-Type: text/html; charset=UTF-8\r\n\r\n" + crlf(html) + "\r\n"
+                + "--alt--\r\n");
+    }
+
+    // A newsletter-style HTML-only mail, the HTML is the only source of text
+    static byte[] htmlOnly() {
+        String html = "<html><head><style>td { padding: 8px; }</style></head><body><table>"
+                + ORDER_BODY.lines().map(line -> "<tr><td style=\"font-family: Arial\">" + line + "&nbsp;</td></tr>")
+                .reduce("", String::concat)
+                + "</table><!-- tracking pixel --><img src=\"https://example.com/p.gif\"></body></html>";
+        return message("Content-Type: multipart/mixed; boundary=\"mixed\"\r\n\r\n"
+                + "--mixed\r\nContent-Type: multipart/alternative; boundary=\"alt\"\r\n\r\n"
+                + "--alt\r\nContent-Type: text/html; charset=UTF-8\r\n\r\n" + crlf(html) + "\r\n"
+                + "--alt--\r\n"
+                + "--mixed--\r\n");
+    }
+
+    static byte[] withAttachment(int attachmentBytes) {
+        byte[] attachment = new byte[attachmentBytes];
+        new Random(42).nextBytes(attachment);
+        String encoded = Base64.getMimeEncoder().encodeToString(attachment);
+        return message("Content-Type: multipart/mixed; boundary=\"mixed\"\r\n\r\n"
+                + "--mixed\r\nContent-Type: text/plain; charset=UTF-8\r\n\r\n" + crlf(ORDER_BODY) + "\r\n"
+                + "--mixed\r\nContent-Type: application/pdf; name=\"invoice.pdf\"\r\n"
+                + "Content-Transfer-Encoding: base64\r\n"
+                + "Content-Disposition: attachment; filename=\"invoice.pdf\"\r\n\r\n" + encoded + "\r\n"
+                + "--mixed--\r\n");
+    }
+
+    static String longBody(int repeat) {
+        return ORDER_BODY.repeat(repeat);
+    }
+
+    static String smallAnswer() {
+        return SMALL_ANSWER;
+    }
+
+    // A receipt with many line items, followed by the chatter models tend to add after the JSON
+    static String largeAnswer(int products) {
+        StringBuilder answer = new StringBuilder("Here is the analysis:\n{\n  \"label\": \"Receipt\",\n"
+                + "  \"extracted_content\": {\n    \"products\": [");
+        for (int i = 0; i < products; i++) {
+            answer.append(i == 0 ? "" : ", ").append("\"Organic whole wheat flour 5kg pack #").append(i).append('"');
+        }
+        answer.append("],\n    \"amount\": 18250.75,\n    \"shipping_address\": null,\n    \"billing_address\": null\n  }\n}\n")
+                .append("Let me know if you need anything else.");
+        return answer.toString();
+    }
+
+    // Splits an answer into token-sized fragments, the way Ollama streams it
+    static List<String> fragments(String answer, int fragmentLength) {
+        List<String> fragments = new ArrayList<>();
+        for (int i = 0; i < answer.length(); i += fragmentLength) {
+            fragments.add(answer.substring(i, Math.min(answer.length(), i + fragmentLength)));
+        }
+        return fragments;
+    }
+
+    static byte[] ndjson(String answer) {
+        StringBuilder stream = new StringBuilder();
+        for (String fragment : fragments(answer, 4)) {
+            stream.append("{\"model\":\"mistral\",\"message\":{\"role\":\"assistant\",\"content\":\"")
+                    .append(escape(fragment)).append("\"},\"done\":false}\n");
+        }
+        stream.append("{\"model\":\"mistral\",\"message\":{\"role\":\"assistant\",\"content\":\"\"},\"done\":true}\n");
+        return stream.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] message(String contentHeadersAndBody) {
+        return ("From: Zouk <online@zouk.co.in>\r\n"
+                + "To: priya@example.com\r\n"
+                + "Subject: Order #1213608 confirmed\r\n"
+                + "MIME-Version: 1.0\r\n"
+                + contentHeadersAndBody).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String crlf(String text) {
+        return text.replace("\n", "\r\n");
+    }
+
+    private static String escape(String fragment) {
+        return fragment.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
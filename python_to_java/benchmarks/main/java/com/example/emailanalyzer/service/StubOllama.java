@@ -0,0 +1,67 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.HashMap;
+import java.util.Map;
+
+// Wires the services in a small Spring context over application.properties, with a RestTemplate that
+// replays a canned /api/chat stream in place of the Ollama HTTP beans
+final class StubOllama {
+
+    private StubOllama() {
+    }
+
+    static AnnotationConfigApplicationContext context(byte[] ndjson) {
+        return context(ndjson, Map.of());
+    }
+
+    // Cache and rules are off so every call reaches the model, health checks too as there is no server to check
+    static AnnotationConfigApplicationContext context(byte[] ndjson, Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>(Map.of(
+                "ollama.urls", "http://stub-ollama",
+                "ollama.http.max-connections-per-route", Integer.MAX_VALUE,
+                "ollama.backends.health-check-interval", "0s",
+                "analysis.cache.enabled", false,
+                "analysis.rules.enabled", false,
+                "analysis.warmup.enabled", false));
+        properties.putAll(overrides);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        MutablePropertySources sources = context.getEnvironment().getPropertySources();
+        try {
+            sources.addFirst(new ResourcePropertySource("classpath:application.properties"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sources.addFirst(new MapPropertySource("benchmark", properties));
+
+        context.registerBean("ollamaRestTemplate", RestTemplate.class, () -> new RestTemplate((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(new MockClientHttpResponse(ndjson, HttpStatus.OK));
+            return request;
+        }));
+        context.registerBean("ollamaHttpClient", HttpClient.class, () -> HttpClient.newHttpClient());
+        // The benchmarks measure the blocking path, the reactive client is wired but never called
+        context.registerBean("ollamaWebClient", WebClient.class, () -> WebClient.create());
+        context.register(OllamaBackends.class, OllamaClient.class, ReactiveOllamaClient.class, AnalysisCache.class,
+                RuleBasedClassifier.class, FieldExtractor.class, EmailTextCleaner.class, TokenBudget.class,
+                AdaptiveConcurrencyLimiter.class, AdmissionController.class, JavaMailEmlParser.class,
+                StreamingEmlParser.class, EmailAnalysisService.class);
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.emailanalyzer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class OllamaHttpClientConfig {
+
+    @Value("${ollama.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${ollama.http.read-timeout:120s}")
+    private Duration readTimeout;
+
+    @Value("${ollama.http.http2:false}")
+    private boolean http2;
+
+    @Bean
+    public HttpClient ollamaHttpClient() {
+        // Connections in use are capped per backend by OllamaBackends. The idle pool is the JDK's own and
+        // only set by JVM flags, -Djdk.httpclient.connectionPoolSize and -Djdk.httpclient.keepalive.timeout
+        return HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate ollamaRestTemplate(HttpClient ollamaHttpClient) {
+        // Unlike the HttpComponents factory, closing a JDK response body early drops the connection
+        // instead of draining it, which OllamaClient relies on to cancel generation
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(ollamaHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(requestFactory);
+    }
+}
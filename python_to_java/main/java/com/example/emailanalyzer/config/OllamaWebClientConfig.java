@@ -0,0 +1,48 @@
+package com.example.emailanalyzer.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class OllamaWebClientConfig {
+
+    @Value("${ollama.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${ollama.http.read-timeout:120s}")
+    private Duration readTimeout;
+
+    @Value("${ollama.http.connection-request-timeout:30s}")
+    private Duration connectionRequestTimeout;
+
+    @Value("${ollama.http.max-connections-per-route:8}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${ollama.http.keep-alive:5m}")
+    private Duration keepAlive;
+
+    @Bean
+    public WebClient ollamaWebClient(WebClient.Builder builder) {
+        // Reactor Netty pools per remote address, so this is the same per-backend cap as the blocking client.
+        // It runs on the shared event loops, the server's own when the reactive API is active.
+        ConnectionProvider connections = ConnectionProvider.builder("ollama")
+                .maxConnections(maxConnectionsPerRoute)
+                .pendingAcquireTimeout(connectionRequestTimeout)
+                .maxIdleTime(keepAlive)
+                .build();
+        // The response timeout covers a backend that takes the request and never answers, like the
+        // blocking client's read timeout; it is reset by every read, so a slow stream is not cut off
+        HttpClient httpClient = HttpClient.create(connections)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.emailanalyzer.controller;
+
+import com.example.emailanalyzer.service.AdmissionRejectedException;
+import com.example.emailanalyzer.service.ConcurrencyLimitExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // Shed load is a temporary condition, clients should back off and retry rather than give up
+    @ExceptionHandler(ConcurrencyLimitExceededException.class)
+    public ResponseEntity<String> concurrencyLimitExceeded(ConcurrencyLimitExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body("Error processing email: " + e.getMessage());
+    }
+
+    // Turned away before any work was done, so the client may as well try another instance straight away
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<String> admissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body("Error processing email: " + e.getMessage());
+    }
+}
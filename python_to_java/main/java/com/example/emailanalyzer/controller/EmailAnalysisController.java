@@ -1,24 +1,45 @@
 package com.example.emailanalyzer.controller;
 
+import com.example.emailanalyzer.model.AnalysisJob;
+import com.example.emailanalyzer.model.CacheStats;
 import com.example.emailanalyzer.model.EmailAnalysisResponse;
+import com.example.emailanalyzer.service.AnalysisJobService;
+import com.example.emailanalyzer.service.BatchAnalysisService;
 import com.example.emailanalyzer.service.EmailAnalysisService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import javax.mail.MessagingException;
 
 @RestController
 @RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class EmailAnalysisController {
 
     private final EmailAnalysisService emailAnalysisService;
+    private final BatchAnalysisService batchAnalysisService;
+    private final AnalysisJobService analysisJobService;
+
+    @Value("${analysis.batch.max-items:100}")
+    private int batchMaxItems;
 
     @Autowired
-    public EmailAnalysisController(EmailAnalysisService emailAnalysisService) {
+    public EmailAnalysisController(EmailAnalysisService emailAnalysisService,
+                                   BatchAnalysisService batchAnalysisService,
+                                   AnalysisJobService analysisJobService) {
         this.emailAnalysisService = emailAnalysisService;
+        this.batchAnalysisService = batchAnalysisService;
+        this.analysisJobService = analysisJobService;
     }
 
     @PostMapping("/analyze-email")
@@ -26,12 +47,9 @@ public class EmailAnalysisController {
             @RequestParam(value = "eml_file", required = false) MultipartFile emlFile,
             @RequestParam(value = "text", required = false) String text) {
         
-        if (emlFile != null && text != null) {
-            return ResponseEntity.badRequest().body("Provide only one of eml_file or text, not both.");
-        }
-        
-        if (emlFile == null && text == null) {
-            return ResponseEntity.badRequest().body("No input provided");
+        String problem = EmailInput.problem(emlFile != null, text);
+        if (problem != null) {
+            return ResponseEntity.badRequest().body(problem);
         }
 
         try {
@@ -49,4 +67,91 @@ public class EmailAnalysisController {
             return ResponseEntity.badRequest().body("Error processing email: " + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+
+    // Raw .eml as the request body, parsed while it streams in instead of being buffered as an upload
+    @PostMapping(value = "/analyze-email", consumes = "message/rfc822")
+    public ResponseEntity<?> analyzeRawEmail(InputStream emlStream) {
+        try {
+            String emailText = emailAnalysisService.parseEml(emlStream);
+            EmailAnalysisResponse result = emailAnalysisService.analyzeEmail(emailText);
+            return ResponseEntity.ok(result);
+
+        } catch (IOException | MessagingException e) {
+            return ResponseEntity.badRequest().body("Error processing email: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/analyze-emails")
+    public ResponseEntity<?> analyzeEmails(
+            @RequestParam(value = "eml_files", required = false) List<MultipartFile> emlFiles,
+            @RequestParam MultiValueMap<String, String> params) {
+
+        // Read texts from the raw parameter map; binding to List<String> would split single values on commas
+        List<String> texts = params.get("texts");
+        // Results follow this order: all eml_files as sent, then all texts. Multipart gives no
+        // order across the two parameters, so a mixed batch is matched up by index and source
+        List<BatchAnalysisService.Item> items = new ArrayList<>();
+
+        try {
+            if (emlFiles != null) {
+                for (MultipartFile emlFile : emlFiles) {
+                    items.add(BatchAnalysisService.Item.ofEml(emlFile.getOriginalFilename(), emlFile.getBytes()));
+                }
+            }
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Error processing email: " + e.getMessage());
+        }
+        if (texts != null) {
+            for (int i = 0; i < texts.size(); i++) {
+                items.add(BatchAnalysisService.Item.ofText("texts[" + i + "]", texts.get(i)));
+            }
+        }
+
+        if (items.isEmpty()) {
+            return ResponseEntity.badRequest().body("No input provided");
+        }
+
+        if (items.size() > batchMaxItems) {
+            return ResponseEntity.badRequest().body("Too many emails in one batch, max is " + batchMaxItems);
+        }
+
+        return ResponseEntity.ok(batchAnalysisService.analyzeBatch(items));
+    }
+
+    // Accepts the email and answers at once; the analysis runs in the background and is polled at the Location
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(
+            @RequestParam(value = "eml_file", required = false) MultipartFile emlFile,
+            @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "callback_url", required = false) String callbackUrl) {
+
+        String problem = EmailInput.problem(emlFile != null, text);
+        if (problem != null) {
+            return ResponseEntity.badRequest().body(problem);
+        }
+
+        try {
+            // Parsed now so a broken file is reported to the caller, not in the job
+            String emailText = emlFile != null ? emailAnalysisService.parseEml(emlFile.getBytes()) : text;
+            AnalysisJob job = analysisJobService.submit(emailText, callbackUrl);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                            .path("/{id}").buildAndExpand(job.getId()).toUri())
+                    .body(job);
+
+        } catch (IOException | MessagingException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error processing email: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<AnalysisJob> job(@PathVariable String id) {
+        AnalysisJob job = analysisJobService.get(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStats> cacheStats() {
+        return ResponseEntity.ok(emailAnalysisService.cacheStats());
+    }
+}
\ No newline at end of file
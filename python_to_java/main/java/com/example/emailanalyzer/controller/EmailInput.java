@@ -0,0 +1,25 @@
+package com.example.emailanalyzer.controller;
+
+/**
+ * The checks the analysis and job endpoints make on the {@code eml_file} and {@code text}
+ * inputs, so the servlet and reactive APIs reject the same requests the same way.
+ */
+final class EmailInput {
+
+    private EmailInput() {
+    }
+
+    /**
+     * Why the request cannot be analyzed, or {@code null} when it can. A blank text is
+     * no input, the model would only be asked about an empty email.
+     */
+    static String problem(boolean hasFile, String text) {
+        if (hasFile && text != null) {
+            return "Provide only one of eml_file or text, not both.";
+        }
+        if (!hasFile && (text == null || text.isBlank())) {
+            return "No input provided";
+        }
+        return null;
+    }
+}
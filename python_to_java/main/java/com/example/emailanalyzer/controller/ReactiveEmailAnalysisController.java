@@ -0,0 +1,111 @@
+package com.example.emailanalyzer.controller;
+
+import com.example.emailanalyzer.model.CacheStats;
+import com.example.emailanalyzer.service.EmailAnalysisService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.FormPartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import javax.mail.MessagingException;
+
+/**
+ * The analysis API on the reactive stack, active with {@code spring.main.web-application-type=reactive}.
+ * A request holds no thread while it waits for the model, so a few event-loop threads
+ * serve as many slow requests as the admission queue holds.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveEmailAnalysisController {
+
+    private final EmailAnalysisService emailAnalysisService;
+    private final int maxFileBytes;
+
+    @Autowired
+    public ReactiveEmailAnalysisController(EmailAnalysisService emailAnalysisService,
+                                           @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxFileSize) {
+        this.emailAnalysisService = emailAnalysisService;
+        this.maxFileBytes = (int) Math.min(Integer.MAX_VALUE, maxFileSize.toBytes());
+    }
+
+    // Parts are read as they arrive rather than stored first; the .eml is gathered in memory up to the
+    // upload limit because the MIME parser reads from a stream
+    @PostMapping(value = "/analyze-email", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<?>> analyzeEmail(@RequestBody Flux<PartEvent> parts) {
+        return parts.windowUntil(PartEvent::isLast)
+                .concatMap(part -> part.switchOnFirst((first, events) ->
+                        first.hasValue() ? readPart(first.get(), events) : events.then(Mono.empty())))
+                .collectList()
+                .flatMap(inputs -> {
+                    boolean hasFile = inputs.stream().anyMatch(input -> input.getKey().equals("eml_file"));
+                    String text = inputs.stream().filter(input -> input.getKey().equals("text"))
+                            .map(Map.Entry::getValue).findFirst().orElse(null);
+                    String problem = EmailInput.problem(hasFile, text);
+                    if (problem != null) {
+                        return Mono.just(ResponseEntity.badRequest().body(problem));
+                    }
+                    return emailAnalysisService.analyzeEmailReactive(inputs.get(0).getValue())
+                            .<ResponseEntity<?>>map(ResponseEntity::ok);
+                })
+                .onErrorResume(this::isInputError, this::inputError);
+    }
+
+    @PostMapping(value = "/analyze-email", consumes = "message/rfc822")
+    public Mono<ResponseEntity<?>> analyzeRawEmail(@RequestBody Flux<DataBuffer> eml) {
+        return parseEml(eml)
+                .flatMap(emailAnalysisService::analyzeEmailReactive)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(this::isInputError, this::inputError);
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStats> cacheStats() {
+        return ResponseEntity.ok(emailAnalysisService.cacheStats());
+    }
+
+    private Mono<Map.Entry<String, String>> readPart(PartEvent first, Flux<PartEvent> events) {
+        if (first instanceof FormPartEvent form && first.name().equals("text")) {
+            return events.then(Mono.just(Map.entry("text", form.value())));
+        }
+        if (first instanceof FilePartEvent && first.name().equals("eml_file")) {
+            return parseEml(events.map(PartEvent::content)).map(text -> Map.entry("eml_file", text));
+        }
+        // Unknown parts are drained so the next one can be read
+        return events.doOnNext(event -> DataBufferUtils.release(event.content())).then(Mono.empty());
+    }
+
+    private Mono<String> parseEml(Flux<DataBuffer> content) {
+        return DataBufferUtils.join(content, maxFileBytes).handle((eml, sink) -> {
+            try (InputStream in = eml.asInputStream(true)) {
+                sink.next(emailAnalysisService.parseEml(in));
+            } catch (IOException | MessagingException e) {
+                sink.error(e);
+            }
+        });
+    }
+
+    private boolean isInputError(Throwable e) {
+        return e instanceof IOException || e instanceof MessagingException || e instanceof DataBufferLimitException;
+    }
+
+    private Mono<ResponseEntity<?>> inputError(Throwable e) {
+        HttpStatus status = e instanceof DataBufferLimitException ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST;
+        return Mono.just(ResponseEntity.status(status).body("Error processing email: " + e.getMessage()));
+    }
+}
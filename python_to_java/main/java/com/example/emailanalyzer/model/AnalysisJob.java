@@ -0,0 +1,23 @@
+package com.example.emailanalyzer.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class AnalysisJob {
+    private String id;
+    private Status status;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant completedAt;
+    private EmailAnalysisResponse result;
+    private String error;
+    @JsonIgnore
+    private String callbackUrl;
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+}
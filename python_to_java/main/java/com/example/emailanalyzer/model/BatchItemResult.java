@@ -0,0 +1,11 @@
+package com.example.emailanalyzer.model;
+
+import lombok.Data;
+
+@Data
+public class BatchItemResult {
+    private int index;
+    private String source;
+    private EmailAnalysisResponse result;
+    private String error;
+}
@@ -0,0 +1,13 @@
+package com.example.emailanalyzer.model;
+
+import lombok.Data;
+
+@Data
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private int size;
+    private int maxEntries;
+}
@@ -0,0 +1,242 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the model calls in flight to what Ollama can serve without queueing, and
+ * finds that limit from latency instead of a fixed pool size (the Vegas algorithm of
+ * Netflix' concurrency-limits). Latency over the lowest seen estimates how many calls
+ * wait inside Ollama: while that queue is short the limit grows, once it gets longer
+ * than a few calls the limit shrinks. Timeouts and unreachable backends cut the limit
+ * as well.
+ *
+ * <p>Latency is measured per estimated prompt and answer token, so a long email does
+ * not look like congestion. Calls over the limit wait up to {@code max-wait} in a queue
+ * of at most {@code max-queue}, beyond that they are rejected with
+ * {@link ConcurrencyLimitExceededException}, see {@link WaiterQueue}.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    // Single samples vary a lot with the email, the queue estimate uses a moving average
+    private static final double RTT_WEIGHT = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+    // The no-load latency is re-learned every so many samples per unit of limit, it goes stale
+    // when the model, the hardware or the typical email changes
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final Duration maxWait;
+    private final Duration retryAfter;
+    // Only guards the state, callers wait on futures
+    private final ReentrantLock lock = new ReentrantLock();
+    private final WaiterQueue<Permit> waiters;
+
+    private double limit;
+    private int inFlight;
+    private double rtt;
+    private double noLoadRtt;
+    private double windowMinRtt = Double.MAX_VALUE;
+    private long samplesUntilProbe;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(@Value("${analysis.limiter.initial-limit:4}") int initialLimit,
+                                      @Value("${analysis.limiter.min-limit:1}") int minLimit,
+                                      @Value("${analysis.limiter.max-limit:64}") int maxLimit,
+                                      @Value("${analysis.limiter.max-queue:100}") int maxQueue,
+                                      @Value("${analysis.limiter.max-wait:30s}") Duration maxWait,
+                                      @Value("${analysis.limiter.retry-after:5s}") Duration retryAfter) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.waiters = new WaiterQueue<>(lock, maxQueue);
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Waits for a free slot. The caller reports the outcome on the permit and releases it.
+     */
+    public Permit acquire() {
+        CompletableFuture<Permit> waiter = acquireAsync();
+        try {
+            return waiter.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(waiter);
+            throw new ConcurrencyLimitExceededException("Interrupted waiting for model capacity", retryAfter);
+        } catch (ExecutionException e) {
+            throw (ConcurrencyLimitExceededException) e.getCause();
+        }
+    }
+
+    /**
+     * Like {@link #acquire()}, but waits without holding a thread. A caller that gives up
+     * before the permit arrives hands the future to {@link #cancel(CompletableFuture)}.
+     */
+    public CompletableFuture<Permit> acquireAsync() {
+        lock.lock();
+        try {
+            if (waiters.isEmpty()) {
+                Permit permit = takeSlot();
+                if (permit != null) {
+                    return CompletableFuture.completedFuture(permit);
+                }
+            }
+            if (waiters.isFull()) {
+                return CompletableFuture.failedFuture(new ConcurrencyLimitExceededException(
+                        "Too many emails waiting for the model, " + waiters.size() + " queued", retryAfter));
+            }
+            return waiters.add(maxWait, () -> new ConcurrencyLimitExceededException(
+                    "No model capacity within " + maxWait, retryAfter));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops waiting for a permit, or releases it if it was granted in the meantime.
+     */
+    public void cancel(CompletableFuture<Permit> waiter) {
+        WaiterQueue.cancel(waiter, Permit::release);
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSample(double sample, int inFlightAtStart) {
+        lock.lock();
+        try {
+            updateLimit(sample, inFlightAtStart);
+        } finally {
+            lock.unlock();
+        }
+        grantWaiting();
+    }
+
+    private void grantWaiting() {
+        waiters.grant(this::takeSlot, () -> inFlight--);
+    }
+
+    // With the lock held
+    private Permit takeSlot() {
+        if (inFlight >= (int) limit) {
+            return null;
+        }
+        inFlight++;
+        return new Permit(inFlight);
+    }
+
+    private void updateLimit(double sample, int inFlightAtStart) {
+        rtt = rtt == 0 ? sample : rtt + (sample - rtt) * RTT_WEIGHT;
+        windowMinRtt = Math.min(windowMinRtt, sample);
+        // The fastest single call of the window is the one that waited least, the moving average
+        // would carry the current queue into the baseline and let the limit creep up
+        if (noLoadRtt == 0 || --samplesUntilProbe <= 0) {
+            noLoadRtt = windowMinRtt;
+            windowMinRtt = Double.MAX_VALUE;
+            samplesUntilProbe = (long) (PROBE_MULTIPLIER * limit);
+        }
+        noLoadRtt = Math.min(noLoadRtt, sample);
+
+        double log = Math.max(1, Math.log10(limit));
+        double queue = limit * (1 - noLoadRtt / rtt);
+        double newLimit = limit;
+        if (queue <= log) {
+            newLimit = limit + 6 * log;
+        } else if (queue < 3 * log) {
+            newLimit = limit + log;
+        } else if (queue > 6 * log) {
+            newLimit = limit - log;
+        }
+        // Far below the limit nothing was learned about whether a higher one would hold
+        if (newLimit > limit && inFlightAtStart < limit / 2) {
+            return;
+        }
+        setLimit(newLimit);
+    }
+
+    private void onDropped() {
+        lock.lock();
+        try {
+            setLimit(limit * DROP_BACKOFF);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+        grantWaiting();
+    }
+
+    private void setLimit(double newLimit) {
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * One call's slot. {@link #release()} must follow exactly once.
+     */
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The call completed; {@code tokens} is the estimated prompt and answer size it took.
+         */
+        public void succeeded(int tokens) {
+            succeeded(tokens, System.nanoTime() - start);
+        }
+
+        void succeeded(int tokens, long elapsedNanos) {
+            onSample((double) elapsedNanos / Math.max(1, tokens), inFlightAtStart);
+        }
+
+        /**
+         * The call timed out or could not reach the model, a sign of overload.
+         */
+        public void dropped() {
+            onDropped();
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides at the door whether an analysis that needs the model is taken on. As many run
+ * as the concurrency limiter currently allows (or {@code max-concurrent} without it); the
+ * rest wait in a queue of at most {@code max-queue} for at most {@code max-queue-time}.
+ *
+ * <p>From the average analysis time the controller estimates how long a new request would
+ * wait, and rejects it right away when that is past the deadline, so a request is never
+ * queued only to time out. Rejections carry a Retry-After of the estimated time for the
+ * current backlog to drain.
+ */
+@Component
+public class AdmissionController {
+
+    private static final double SERVICE_TIME_WEIGHT = 0.2;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final boolean followLimiter;
+    private final int maxConcurrent;
+    private final Duration maxQueueTime;
+    private final Duration minRetryAfter;
+    private final Duration maxRetryAfter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final WaiterQueue<Ticket> waiters;
+
+    private int admitted;
+    private double serviceNanos;
+
+    @Autowired
+    public AdmissionController(AdaptiveConcurrencyLimiter limiter,
+                               @Value("${analysis.limiter.enabled:true}") boolean limiterEnabled,
+                               @Value("${analysis.admission.max-concurrent:8}") int maxConcurrent,
+                               @Value("${analysis.admission.max-queue:200}") int maxQueue,
+                               @Value("${analysis.admission.max-queue-time:10s}") Duration maxQueueTime,
+                               @Value("${analysis.admission.min-retry-after:1s}") Duration minRetryAfter,
+                               @Value("${analysis.admission.max-retry-after:60s}") Duration maxRetryAfter) {
+        this.limiter = limiter;
+        this.followLimiter = limiterEnabled;
+        this.maxConcurrent = maxConcurrent;
+        this.waiters = new WaiterQueue<>(lock, maxQueue);
+        this.maxQueueTime = maxQueueTime;
+        this.minRetryAfter = minRetryAfter;
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    /**
+     * Waits until the analysis is admitted. The caller releases the ticket when it is done.
+     */
+    public Ticket admit() {
+        CompletableFuture<Ticket> waiter = admitAsync();
+        try {
+            return waiter.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(waiter);
+            throw new AdmissionRejectedException("Interrupted waiting for admission", minRetryAfter);
+        } catch (ExecutionException e) {
+            throw (AdmissionRejectedException) e.getCause();
+        }
+    }
+
+    /**
+     * Like {@link #admit()}, but waits without holding a thread. A caller that gives up
+     * before it is admitted hands the future to {@link #cancel(CompletableFuture)}.
+     */
+    public CompletableFuture<Ticket> admitAsync() {
+        lock.lock();
+        try {
+            if (waiters.isEmpty()) {
+                Ticket ticket = takeSlot();
+                if (ticket != null) {
+                    return CompletableFuture.completedFuture(ticket);
+                }
+            }
+            int capacity = capacity();
+            if (waiters.isFull()) {
+                return CompletableFuture.failedFuture(rejected(
+                        "Too many emails waiting for analysis, " + waiters.size() + " queued", capacity));
+            }
+            long expectedWait = waitNanos(waiters.size() + 1, capacity);
+            if (expectedWait > maxQueueTime.toNanos()) {
+                return CompletableFuture.failedFuture(rejected("Expected wait of "
+                        + TimeUnit.NANOSECONDS.toSeconds(expectedWait) + "s is over " + maxQueueTime, capacity));
+            }
+            return waiters.add(maxQueueTime, this::timedOut);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops waiting for admission, or releases the ticket if it was admitted in the meantime.
+     */
+    public void cancel(CompletableFuture<Ticket> waiter) {
+        WaiterQueue.cancel(waiter, Ticket::release);
+    }
+
+    public int getAdmitted() {
+        lock.lock();
+        try {
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // With the lock held
+    private Ticket takeSlot() {
+        if (admitted >= capacity()) {
+            return null;
+        }
+        admitted++;
+        return new Ticket();
+    }
+
+    private int capacity() {
+        return followLimiter ? limiter.getLimit() : maxConcurrent;
+    }
+
+    // Position in the queue over the slots that free up per average analysis, unknown before the first one
+    private long waitNanos(int position, int capacity) {
+        return (long) (serviceNanos * position / Math.max(1, capacity));
+    }
+
+    private AdmissionRejectedException timedOut() {
+        lock.lock();
+        try {
+            return rejected("Not admitted within " + maxQueueTime, capacity());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Retrying before the requests already waiting have been served would only find the queue as full
+    private AdmissionRejectedException rejected(String message, int capacity) {
+        long nanos = serviceNanos == 0 ? maxQueueTime.toNanos() : waitNanos(waiters.size(), capacity);
+        long seconds = (long) Math.ceil(nanos / 1e9);
+        Duration retryAfter = Duration.ofSeconds(Math.max(minRetryAfter.toSeconds(),
+                Math.min(maxRetryAfter.toSeconds(), seconds)));
+        return new AdmissionRejectedException(message, retryAfter);
+    }
+
+    private void onRelease(long durationNanos) {
+        lock.lock();
+        try {
+            admitted--;
+            serviceNanos = serviceNanos == 0
+                    ? durationNanos
+                    : serviceNanos + (durationNanos - serviceNanos) * SERVICE_TIME_WEIGHT;
+        } finally {
+            lock.unlock();
+        }
+        waiters.grant(this::takeSlot, () -> admitted--);
+    }
+
+    /**
+     * One admitted analysis. {@link #release()} must follow when it is done.
+     */
+    public final class Ticket {
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Ticket() {
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                onRelease(System.nanoTime() - start);
+            }
+        }
+    }
+}
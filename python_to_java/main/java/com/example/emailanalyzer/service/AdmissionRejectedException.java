@@ -0,0 +1,24 @@
+package com.example.emailanalyzer.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an analysis is not admitted because the queue in front of the model is
+ * full or would keep it waiting past the deadline. {@link #getRetryAfter()} is when
+ * the current backlog is expected to have drained.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.CacheStats;
+import com.example.emailanalyzer.model.EmailAnalysisResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of analysis results keyed by a SHA-256 of the whitespace-normalized
+ * email text, the model and the prompt version. Entries also expire after a TTL.
+ */
+@Component
+public class AnalysisCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    @Autowired
+    public AnalysisCache(@Value("${analysis.cache.enabled:true}") boolean enabled,
+                         @Value("${analysis.cache.max-entries:10000}") int maxEntries,
+                         @Value("${analysis.cache.ttl:24h}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > AnalysisCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public String key(String emailText, String model, String promptVersion) {
+        StringBuilder normalized = new StringBuilder(emailText.length() + 32);
+        normalized.append(model).append('\n').append(promptVersion).append('\n');
+        boolean pendingSpace = false;
+        for (int i = 0; i < emailText.length(); i++) {
+            char c = emailText.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            // Leading and trailing whitespace is dropped, inner runs collapse to one space
+            if (pendingSpace && normalized.charAt(normalized.length() - 1) != '\n') {
+                normalized.append(' ');
+            }
+            pendingSpace = false;
+            normalized.append(c);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public EmailAnalysisResponse get(String key) {
+        return lookup(key, true);
+    }
+
+    // Same as get, but does not count towards hits and misses
+    public EmailAnalysisResponse peek(String key) {
+        return lookup(key, false);
+    }
+
+    private EmailAnalysisResponse lookup(String key, boolean recordStats) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.createdAt > ttlNanos) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+            if (recordStats) {
+                (entry == null ? misses : hits).incrementAndGet();
+            }
+            return entry == null ? null : entry.response;
+        }
+    }
+
+    public void put(String key, EmailAnalysisResponse response) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(response, System.nanoTime()));
+        }
+    }
+
+    public CacheStats stats() {
+        CacheStats stats = new CacheStats();
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setEvictions(evictions.get());
+        stats.setExpirations(expirations.get());
+        synchronized (entries) {
+            stats.setSize(entries.size());
+        }
+        stats.setMaxEntries(maxEntries);
+        return stats;
+    }
+
+    private static final class Entry {
+        private final EmailAnalysisResponse response;
+        private final long createdAt;
+
+        Entry(EmailAnalysisResponse response, long createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+}
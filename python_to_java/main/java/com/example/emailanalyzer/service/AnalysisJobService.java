@@ -0,0 +1,184 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.AnalysisJob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs analyses in the background so clients do not hold a connection while the
+ * model works. Jobs queue for a fixed pool of workers; when the queue is full new
+ * jobs are refused with {@link ConcurrencyLimitExceededException}. Finished jobs are
+ * kept for {@code analysis.jobs.retention} and, when a callback URL was given, posted
+ * to it once. Callback URLs are only accepted for the hosts in
+ * {@code analysis.jobs.callback-allowed-hosts}, so clients cannot make the server post
+ * to internal addresses; with none configured callbacks are off.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    private final EmailAnalysisService emailAnalysisService;
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService callbacks;
+    private final ScheduledExecutorService cleanup;
+    private final RestTemplate callbackClient;
+    private final Duration retention;
+    private final Duration retryAfter;
+    private final Set<String> callbackAllowedHosts;
+
+    @Autowired
+    public AnalysisJobService(EmailAnalysisService emailAnalysisService,
+                              @Value("${analysis.jobs.workers:4}") int workerCount,
+                              @Value("${analysis.jobs.max-queued:1000}") int maxQueued,
+                              @Value("${analysis.jobs.retention:1h}") Duration retention,
+                              @Value("${analysis.jobs.callback-timeout:10s}") Duration callbackTimeout,
+                              @Value("${analysis.jobs.callback-allowed-hosts:}") Set<String> callbackAllowedHosts,
+                              @Value("${analysis.limiter.retry-after:5s}") Duration retryAfter) {
+        this.emailAnalysisService = emailAnalysisService;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), new CustomizableThreadFactory("analysis-job-"));
+        // Callbacks go to client servers, a slow one must not hold up the workers
+        this.callbacks = Executors.newFixedThreadPool(2, new CustomizableThreadFactory("analysis-job-callback-"));
+        CustomizableThreadFactory cleanupThreadFactory = new CustomizableThreadFactory("analysis-job-cleanup-");
+        cleanupThreadFactory.setDaemon(true);
+        this.cleanup = Executors.newSingleThreadScheduledExecutor(cleanupThreadFactory);
+        SimpleClientHttpRequestFactory callbackRequestFactory = new SimpleClientHttpRequestFactory();
+        callbackRequestFactory.setConnectTimeout(callbackTimeout);
+        callbackRequestFactory.setReadTimeout(callbackTimeout);
+        this.callbackClient = new RestTemplate(callbackRequestFactory);
+        this.retention = retention;
+        this.retryAfter = retryAfter;
+        this.callbackAllowedHosts = callbackAllowedHosts.stream()
+                .map(host -> host.strip().toLowerCase(Locale.ROOT))
+                .filter(host -> !host.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        long period = Math.max(1, retention.toSeconds() / 10);
+        cleanup.scheduleWithFixedDelay(this::removeExpired, period, period, TimeUnit.SECONDS);
+    }
+
+    public AnalysisJob submit(String emailText, String callbackUrl) {
+        if (callbackUrl != null) {
+            checkCallbackUrl(callbackUrl);
+        }
+        AnalysisJob job = new AnalysisJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setStatus(AnalysisJob.Status.QUEUED);
+        job.setSubmittedAt(Instant.now());
+        job.setCallbackUrl(callbackUrl);
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(() -> run(job, emailText));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new ConcurrencyLimitExceededException("Too many analysis jobs queued", retryAfter);
+        }
+        return job;
+    }
+
+    public AnalysisJob get(String id) {
+        return jobs.get(id);
+    }
+
+    private void run(AnalysisJob queued, String emailText) {
+        // Every state is a new object, a reader never sees a job half updated
+        AnalysisJob running = copy(queued);
+        running.setStatus(AnalysisJob.Status.RUNNING);
+        running.setStartedAt(Instant.now());
+        jobs.put(running.getId(), running);
+
+        AnalysisJob finished = copy(running);
+        try {
+            finished.setResult(emailAnalysisService.analyzeQueuedEmail(emailText));
+            finished.setStatus(AnalysisJob.Status.SUCCEEDED);
+        } catch (RuntimeException e) {
+            finished.setError("Error processing email: " + e.getMessage());
+            finished.setStatus(AnalysisJob.Status.FAILED);
+        }
+        finished.setCompletedAt(Instant.now());
+        jobs.put(finished.getId(), finished);
+
+        if (finished.getCallbackUrl() != null) {
+            callbacks.execute(() -> notifyCallback(finished));
+        }
+    }
+
+    private void notifyCallback(AnalysisJob job) {
+        try {
+            callbackClient.postForLocation(job.getCallbackUrl(), job);
+        } catch (RestClientException e) {
+            // The job stays available for polling
+            log.warn("Callback for job {} to {} failed: {}", job.getId(), job.getCallbackUrl(), e.getMessage());
+        }
+    }
+
+    private void checkCallbackUrl(String callbackUrl) {
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid callback_url: " + callbackUrl);
+        }
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https") || uri.getHost() == null) {
+            throw new IllegalArgumentException("callback_url must be an absolute http or https URL");
+        }
+        if (callbackAllowedHosts.isEmpty()) {
+            throw new IllegalArgumentException("callback_url is not accepted, no callback hosts are configured");
+        }
+        if (!callbackAllowedHosts.contains(uri.getHost().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("callback_url host is not allowed: " + uri.getHost());
+        }
+    }
+
+    private void removeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getCompletedAt() != null && job.getCompletedAt().isBefore(cutoff));
+    }
+
+    private static AnalysisJob copy(AnalysisJob job) {
+        AnalysisJob copy = new AnalysisJob();
+        copy.setId(job.getId());
+        copy.setStatus(job.getStatus());
+        copy.setSubmittedAt(job.getSubmittedAt());
+        copy.setStartedAt(job.getStartedAt());
+        copy.setCompletedAt(job.getCompletedAt());
+        copy.setResult(job.getResult());
+        copy.setError(job.getError());
+        copy.setCallbackUrl(job.getCallbackUrl());
+        return copy;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        callbacks.shutdownNow();
+        cleanup.shutdownNow();
+    }
+}
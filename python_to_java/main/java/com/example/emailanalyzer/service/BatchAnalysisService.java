@@ -0,0 +1,91 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.BatchItemResult;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Service
+public class BatchAnalysisService {
+
+    private final EmailAnalysisService emailAnalysisService;
+    private final ExecutorService executor;
+
+    @Autowired
+    public BatchAnalysisService(EmailAnalysisService emailAnalysisService,
+                                @Value("${analysis.batch.concurrency:4}") int concurrency) {
+        this.emailAnalysisService = emailAnalysisService;
+        // One pool shared by all batch requests, so the cap holds across concurrent batches too
+        this.executor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("batch-analysis-"));
+    }
+
+    /**
+     * Analyzes the items concurrently and returns one result per item, in the order of
+     * {@code items} whatever order they finish in. An item that fails carries its error,
+     * the others are not affected.
+     */
+    public List<BatchItemResult> analyzeBatch(List<Item> items) {
+        List<CompletableFuture<BatchItemResult>> futures = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            Item item = items.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> analyzeItem(index, item), executor));
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<BatchItemResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    private BatchItemResult analyzeItem(int index, Item item) {
+        BatchItemResult result = new BatchItemResult();
+        result.setIndex(index);
+        result.setSource(item.getSource());
+        try {
+            String emailText = item.getEmlBytes() != null
+                    ? emailAnalysisService.parseEml(item.getEmlBytes())
+                    : item.getText();
+            result.setResult(emailAnalysisService.analyzeQueuedEmail(emailText));
+        } catch (Exception e) {
+            result.setError("Error processing email: " + e.getMessage());
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One email of a batch, either raw .eml bytes or plain text. {@code source} names it in the
+     * result, e.g. the file name.
+     */
+    @lombok.Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Item {
+        String source;
+        byte[] emlBytes;
+        String text;
+
+        public static Item ofEml(String source, byte[] emlBytes) {
+            return new Item(source, emlBytes, null);
+        }
+
+        public static Item ofText(String source, String text) {
+            return new Item(source, null, text);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.emailanalyzer.service;
+
+/**
+ * Joins streamed completion fragments and tracks brace depth so the caller
+ * knows as soon as the first top-level JSON object has been closed.
+ */
+public class CompletionAccumulator {
+
+    private final StringBuilder text = new StringBuilder();
+    private int scanned;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int start = -1;
+    private int end = -1;
+
+    /**
+     * Appends a fragment and returns {@code true} once the top-level object is complete.
+     */
+    public boolean append(CharSequence fragment) {
+        text.append(fragment);
+        return scan();
+    }
+
+    /**
+     * Same as {@link #append(CharSequence)}, for fragments still in a parser's buffer.
+     */
+    public boolean append(char[] fragment, int offset, int length) {
+        text.append(fragment, offset, length);
+        return scan();
+    }
+
+    private boolean scan() {
+        if (end >= 0) {
+            return true;
+        }
+        for (; scanned < text.length(); scanned++) {
+            char c = text.charAt(scanned);
+            if (depth == 0) {
+                if (c == '{') {
+                    start = scanned;
+                    depth = 1;
+                }
+                continue;
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                end = ++scanned;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isComplete() {
+        return end >= 0;
+    }
+
+    public String getJson() {
+        return isComplete() ? text.substring(start, end) : null;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+}
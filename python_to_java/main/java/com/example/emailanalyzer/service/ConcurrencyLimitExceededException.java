@@ -0,0 +1,23 @@
+package com.example.emailanalyzer.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a model call is shed because Ollama is at its concurrency limit and
+ * the queue in front of it is full or took too long.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public ConcurrencyLimitExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
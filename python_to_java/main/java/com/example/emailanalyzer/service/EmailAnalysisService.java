@@ -1,86 +1,329 @@
 package com.example.emailanalyzer.service;
 
+import com.example.emailanalyzer.model.Address;
+import com.example.emailanalyzer.model.CacheStats;
 import com.example.emailanalyzer.model.EmailAnalysisResponse;
+import com.example.emailanalyzer.model.ExtractedContent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import reactor.core.publisher.Mono;
+
 import javax.mail.MessagingException;
-import javax.mail.Session;
-import javax.mail.internet.MimeMessage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class EmailAnalysisService {
 
-    @Value("${ollama.url:http://localhost:11434}")
-    private String ollamaUrl;
+    private static final Logger log = LoggerFactory.getLogger(EmailAnalysisService.class);
 
     private static final String OLLAMA_MODEL = "mistral";
-    private final RestTemplate restTemplate;
+    // Bump whenever the prompt changes so cached results from the old prompt are not reused
+    private static final String PROMPT_VERSION = "3";
+    private static final Set<String> LABELS = Set.of("Offer", "Order", "Account", "Refund", "Receipt", "OTP");
+
+    private static final String ANALYSIS_INSTRUCTIONS = """
+        You are an email analysis assistant. Analyze the following email and:
+        1. Classify it as one of: Offer, Order, Account, Refund, Receipt, OTP.
+        2. Extract purchase information:
+           - products (list)
+           - amount (number)
+           - shipping_address (object with: address_line1, address_line2, city, state, pincode, phone_number)
+           - billing_address (object with: address_line1, address_line2, city, state, pincode, phone_number)
+        If any field is missing, use null or empty.
+
+        Respond ONLY in JSON with keys: label, extracted_content (with products, amount, shipping_address, billing_address).
+
+        Example output:
+        {
+          "label": "Order",
+          "extracted_content": {
+            "products": ["Widget"],
+            "amount": 19.99,
+            "shipping_address": {
+              "address_line1": "123 Main St.",
+              "address_line2": "Apt 4B",
+              "city": "Springfield",
+              "state": "IL",
+              "pincode": "62704",
+              "phone_number": "555-123-4567"
+            },
+            "billing_address": {
+              "address_line1": "123 Main St.",
+              "address_line2": "Apt 4B",
+              "city": "Springfield",
+              "state": "IL",
+              "pincode": "62704",
+              "phone_number": "555-123-4567"
+            }
+          }
+        }
+
+        """;
+
+    private static final String CLASSIFICATION_INSTRUCTIONS = """
+        You are an email classification assistant. Classify the following email as exactly one of:
+        Offer, Order, Account, Refund, Receipt, OTP.
+
+        Respond ONLY in JSON with key: label.
+
+        Example output:
+        {"label": "Offer"}
+
+        """;
+
+    // One variant per extracted label, each is a stable prefix of its own
+    private static final String EXTRACTION_INSTRUCTIONS = """
+        You are an email analysis assistant. The following email is classified as %s. Extract purchase information:
+           - products (list)
+           - amount (number)
+           - shipping_address (object with: address_line1, address_line2, city, state, pincode, phone_number)
+           - billing_address (object with: address_line1, address_line2, city, state, pincode, phone_number)
+        If any field is missing, use null or empty.
+
+        Respond ONLY in JSON with key: extracted_content (with products, amount, shipping_address, billing_address).
+
+        Example output:
+        {
+          "extracted_content": {
+            "products": ["Widget"],
+            "amount": 19.99,
+            "shipping_address": {
+              "address_line1": "123 Main St.",
+              "address_line2": "Apt 4B",
+              "city": "Springfield",
+              "state": "IL",
+              "pincode": "62704",
+              "phone_number": "555-123-4567"
+            },
+            "billing_address": null
+          }
+        }
+
+        """;
+
+    @Value("${analysis.eml.parser:streaming}")
+    private String emlParser;
+
+    @Value("${analysis.pipeline.two-stage:false}")
+    private boolean twoStage;
+
+    @Value("${analysis.pipeline.extract-labels:Order,Receipt,Refund}")
+    private Set<String> extractLabels;
+
+    @Value("${analysis.rules.enabled:true}")
+    private boolean rulesEnabled;
+
+    @Value("${analysis.rules.min-confidence:0.9}")
+    private double rulesMinConfidence;
+
+    @Value("${analysis.preprocess.enabled:true}")
+    private boolean preprocessEnabled;
+
+    @Value("${analysis.budget.enabled:true}")
+    private boolean budgetEnabled;
+
+    @Value("${analysis.output.structured:true}")
+    private boolean structuredOutput;
+
+    @Value("${analysis.limiter.enabled:true}")
+    private boolean limiterEnabled;
+
+    @Value("${analysis.admission.enabled:true}")
+    private boolean admissionEnabled;
+
+    @Value("${analysis.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${analysis.extraction.enabled:true}")
+    private boolean extractionEnabled;
+
+    @Value("${analysis.extraction.prompt-hints:true}")
+    private boolean extractionPromptHints;
+
+    private final OllamaClient ollamaClient;
+    private final OllamaBackends ollamaBackends;
+    private final ReactiveOllamaClient reactiveOllamaClient;
+    private final AnalysisCache analysisCache;
+    private final RuleBasedClassifier ruleBasedClassifier;
+    private final FieldExtractor fieldExtractor;
+    private final EmailTextCleaner emailTextCleaner;
+    private final TokenBudget tokenBudget;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final AdmissionController admissionController;
+    private final JavaMailEmlParser javaMailEmlParser;
+    private final StreamingEmlParser streamingEmlParser;
+    private final RequestCoalescer<EmailAnalysisResponse> inFlightAnalyses = new RequestCoalescer<>();
+    private final ResponseSchemas responseSchemas = new ResponseSchemas(LABELS);
     private final ObjectMapper objectMapper;
 
-    public EmailAnalysisService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    @Autowired
+    public EmailAnalysisService(OllamaClient ollamaClient, OllamaBackends ollamaBackends,
+                                ReactiveOllamaClient reactiveOllamaClient, AnalysisCache analysisCache,
+                                RuleBasedClassifier ruleBasedClassifier, FieldExtractor fieldExtractor,
+                                EmailTextCleaner emailTextCleaner, TokenBudget tokenBudget, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                AdmissionController admissionController, JavaMailEmlParser javaMailEmlParser, StreamingEmlParser streamingEmlParser) {
+        this.ollamaClient = ollamaClient;
+        this.ollamaBackends = ollamaBackends;
+        this.reactiveOllamaClient = reactiveOllamaClient;
+        this.analysisCache = analysisCache;
+        this.ruleBasedClassifier = ruleBasedClassifier;
+        this.fieldExtractor = fieldExtractor;
+        this.emailTextCleaner = emailTextCleaner;
+        this.tokenBudget = tokenBudget;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.admissionController = admissionController;
+        this.javaMailEmlParser = javaMailEmlParser;
+        this.streamingEmlParser = streamingEmlParser;
+        // The prompt asks the model for snake_case keys (extracted_content, address_line1, ...)
+        this.objectMapper = new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     public String parseEml(byte[] fileBytes) throws MessagingException, IOException {
-        Properties props = new Properties();
-        Session session = Session.getDefaultInstance(props, null);
-        MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(fileBytes));
-        
-        StringBuilder text = new StringBuilder();
-        if (message.isMimeType("multipart/*")) {
-            // Handle multipart message
-            javax.mail.Multipart multipart = (javax.mail.Multipart) message.getContent();
-            for (int i = 0; i < multipart.getCount(); i++) {
-                javax.mail.BodyPart bodyPart = multipart.getBodyPart(i);
-                if (bodyPart.isMimeType("text/plain")) {
-                    text.append(bodyPart.getContent().toString());
-                }
-            }
-        } else {
-            // Handle single part message
-            text.append(message.getContent().toString());
+        if ("streaming".equals(emlParser)) {
+            return streamingEmlParser.parse(new ByteArrayInputStream(fileBytes));
         }
-        return text.toString();
+        return javaMailEmlParser.parse(fileBytes);
     }
 
-    private String callOllama(String prompt) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    public String parseEml(InputStream emlStream) throws MessagingException, IOException {
+        return streamingEmlParser.parse(emlStream);
+    }
 
-        String requestBody = String.format(
-            "{\"model\": \"%s\", \"prompt\": \"%s\", \"options\": {\"temperature\": 0}}",
-            OLLAMA_MODEL, prompt
-        );
+    private CompletionAccumulator callOllama(String instructions, String prompt, JsonNode schema) {
+        OllamaRequest request = ollamaRequest(instructions, prompt, schema);
+        if (!limiterEnabled) {
+            return ollamaClient.generate(request);
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire();
+        try {
+            CompletionAccumulator completion = ollamaClient.generate(request);
+            permit.succeeded(tokens(instructions, prompt, completion));
+            return completion;
+        } catch (ResourceAccessException e) {
+            // Timeouts and unreachable backends are the overload signal, other errors say nothing about load
+            permit.dropped();
+            throw e;
+        } finally {
+            permit.release();
+        }
+    }
+
+    private Mono<CompletionAccumulator> callOllamaReactive(String instructions, String prompt, JsonNode schema) {
+        return Mono.defer(() -> {
+            OllamaRequest request = ollamaRequest(instructions, prompt, schema);
+            if (!limiterEnabled) {
+                return reactiveOllamaClient.generate(request);
+            }
+            return Mono.usingWhen(permit(),
+                    permit -> reactiveOllamaClient.generate(request)
+                            .doOnNext(completion -> permit.succeeded(tokens(instructions, prompt, completion)))
+                            .doOnError(ResourceAccessException.class, e -> permit.dropped()),
+                    permit -> Mono.fromRunnable(permit::release));
+        });
+    }
+
+    // Waits in the limiter's queue without a thread; a cancelled request leaves the queue
+    private Mono<AdaptiveConcurrencyLimiter.Permit> permit() {
+        return Mono.create(sink -> {
+            CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiter = concurrencyLimiter.acquireAsync();
+            sink.onCancel(() -> concurrencyLimiter.cancel(waiter));
+            waiter.whenComplete((permit, error) -> {
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.success(permit);
+                }
+            });
+        });
+    }
+
+    // Same for a place in the admission queue
+    private Mono<AdmissionController.Ticket> admission() {
+        return Mono.create(sink -> {
+            CompletableFuture<AdmissionController.Ticket> waiter = admissionController.admitAsync();
+            sink.onCancel(() -> admissionController.cancel(waiter));
+            waiter.whenComplete((ticket, error) -> {
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.success(ticket);
+                }
+            });
+        });
+    }
+
+    private static int tokens(String instructions, String prompt, CompletionAccumulator completion) {
+        return TokenBudget.estimateTokens(instructions) + TokenBudget.estimateTokens(prompt)
+                + TokenBudget.estimateTokens(completion.getText());
+    }
+
+    private OllamaRequest ollamaRequest(String instructions, String prompt, JsonNode schema) {
+        OllamaRequest request = new OllamaRequest(OLLAMA_MODEL, prompt).system(instructions).option("temperature", 0);
+        if (structuredOutput) {
+            // Constrained decoding, the answer is the JSON object and nothing else
+            request.format(schema);
+        }
+        if (budgetEnabled) {
+            // Without num_ctx Ollama silently cuts the prompt to its default context size
+            request.option("num_ctx", tokenBudget.numCtx(OLLAMA_MODEL))
+                    .option("num_predict", tokenBudget.numPredict(OLLAMA_MODEL));
+        }
+        return request;
+    }
 
-        HttpEntity<String> request = new HttpEntity<>(requestBody, headers);
-        return restTemplate.postForObject(ollamaUrl + "/api/generate", request, String.class);
+    /**
+     * Loads the model on every backend and has it evaluate the instructions once, so the
+     * first emails neither wait for the model to load nor pay for the instruction prefix,
+     * whichever backend they are routed to.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmupEnabled) {
+            return;
+        }
+        OllamaRequest request = twoStage
+                ? ollamaRequest(CLASSIFICATION_INSTRUCTIONS, "Email:\n", responseSchemas.classification())
+                : ollamaRequest(ANALYSIS_INSTRUCTIONS, "Email:\n", responseSchemas.analysis());
+        // Evaluating the prompt is what warms up, the answer itself is not needed
+        request.option("num_predict", 1);
+        for (OllamaBackends.Backend backend : ollamaBackends.backends()) {
+            try {
+                ollamaClient.generate(request, backend);
+            } catch (RestClientException e) {
+                // Not fatal, the first request there then loads the model instead
+                log.warn("Ollama warm-up of {} failed: {}", backend.getUrl(), e.getMessage());
+            }
+        }
     }
 
-    private EmailAnalysisResponse extractJsonFromResponse(String responseText) {
-        Pattern pattern = Pattern.compile("(\\{.*\\})", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(responseText);
-        
-        if (matcher.find()) {
-            String jsonStr = matcher.group(1);
+    EmailAnalysisResponse extractJsonFromResponse(CompletionAccumulator completion) {
+        String jsonStr = completion.getJson();
+        if (jsonStr != null) {
             try {
                 return objectMapper.readValue(jsonStr, EmailAnalysisResponse.class);
             } catch (IOException e) {
                 // Log error
-                return createErrorResponse("JSON decode error: " + e.getMessage(), responseText);
+                return createErrorResponse("JSON decode error: " + e.getMessage(), completion.getText());
             }
         }
-        return createErrorResponse("No JSON object found in response.", responseText);
+        return createErrorResponse("No JSON object found in response.", completion.getText());
     }
 
     private EmailAnalysisResponse createErrorResponse(String error, String raw) {
@@ -91,47 +334,274 @@ public class EmailAnalysisService {
     }
 
     public EmailAnalysisResponse analyzeEmail(String emailText) {
-        String prompt = """
-            You are an email analysis assistant. Analyze the following email and:
-            1. Classify it as one of: Offer, Order, Account, Refund, Receipt, OTP.
-            2. Extract purchase information:
-               - products (list)
-               - amount (number)
-               - shipping_address (object with: address_line1, address_line2, city, state, pincode, phone_number)
-               - billing_address (object with: address_line1, address_line2, city, state, pincode, phone_number)
-            If any field is missing, use null or empty.
-
-            Respond ONLY in JSON with keys: label, extracted_content (with products, amount, shipping_address, billing_address).
-
-            Example output:
-            {
-              "label": "Order",
-              "extracted_content": {
-                "products": ["Widget"],
-                "amount": 19.99,
-                "shipping_address": {
-                  "address_line1": "123 Main St.",
-                  "address_line2": "Apt 4B",
-                  "city": "Springfield",
-                  "state": "IL",
-                  "pincode": "62704",
-                  "phone_number": "555-123-4567"
-                },
-                "billing_address": {
-                  "address_line1": "123 Main St.",
-                  "address_line2": "Apt 4B",
-                  "city": "Springfield",
-                  "state": "IL",
-                  "pincode": "62704",
-                  "phone_number": "555-123-4567"
+        return analyzeEmail(emailText, admissionEnabled);
+    }
+
+    /**
+     * {@link #analyzeEmail(String)} for work that already waits in a bounded queue of our own,
+     * background jobs and batch items. Their fixed worker pools cap how many run at once, so
+     * admission control does not turn them away; the concurrency limiter still paces their
+     * model calls.
+     */
+    public EmailAnalysisResponse analyzeQueuedEmail(String emailText) {
+        return analyzeEmail(emailText, false);
+    }
+
+    private EmailAnalysisResponse analyzeEmail(String emailText, boolean admit) {
+        EmailAnalysisResponse ruled = classifyByRules(emailText);
+        if (ruled != null) {
+            return ruled;
+        }
+
+        // The rules above see the whole mail, footers like "unsubscribe" are part of what they weigh
+        String text = preprocessEnabled ? emailTextCleaner.clean(emailText) : emailText;
+        String cacheKey = analysisCache.key(text, OLLAMA_MODEL, promptVersion());
+        EmailAnalysisResponse cached = analysisCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Identical emails arriving together share a single model call
+        return inFlightAnalyses.execute(cacheKey, () -> {
+            // A call for the same key may have completed between the cache check and getting here
+            EmailAnalysisResponse completed = analysisCache.peek(cacheKey);
+            if (completed != null) {
+                return completed;
+            }
+            // Only work that needs the model is admitted, rule and cache answers above are never turned away
+            AdmissionController.Ticket ticket = admit ? admissionController.admit() : null;
+            try {
+                EmailAnalysisResponse result = analyzeWithModel(text);
+                cacheIfUsable(cacheKey, result);
+                return result;
+            } finally {
+                if (ticket != null) {
+                    ticket.release();
                 }
-              }
             }
+        });
+    }
+
+    /**
+     * {@link #analyzeEmail(String)} for the reactive API: the same rules, cache and prompts,
+     * but no thread is held while the request waits for a permit or for the model.
+     */
+    public Mono<EmailAnalysisResponse> analyzeEmailReactive(String emailText) {
+        return Mono.defer(() -> {
+            EmailAnalysisResponse ruled = classifyByRules(emailText);
+            if (ruled != null) {
+                return Mono.just(ruled);
+            }
+
+            String text = preprocessEnabled ? emailTextCleaner.clean(emailText) : emailText;
+            String cacheKey = analysisCache.key(text, OLLAMA_MODEL, promptVersion());
+            EmailAnalysisResponse cached = analysisCache.get(cacheKey);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+
+            return Mono.fromFuture(() -> inFlightAnalyses.executeAsync(cacheKey, () -> {
+                EmailAnalysisResponse completed = analysisCache.peek(cacheKey);
+                if (completed != null) {
+                    return CompletableFuture.completedFuture(completed);
+                }
+                // Cancelled once every caller waiting on this key has gone away, which gives back
+                // the admission ticket, the limiter permit and the backend connection
+                Mono<EmailAnalysisResponse> analysis = analyzeWithModelReactive(text)
+                        .doOnNext(result -> cacheIfUsable(cacheKey, result));
+                if (!admissionEnabled) {
+                    return analysis.toFuture();
+                }
+                return Mono.usingWhen(admission(),
+                        ticket -> analysis,
+                        ticket -> Mono.fromRunnable(ticket::release)).toFuture();
+            }));
+        });
+    }
 
-            Email:
-            """ + emailText;
+    // Obvious OTP and Offer mails are labelled locally, anything less certain still goes to the model
+    private EmailAnalysisResponse classifyByRules(String emailText) {
+        if (!rulesEnabled) {
+            return null;
+        }
+        RuleClassification rule = ruleBasedClassifier.classify(emailText);
+        if (rule.getLabel() == null || rule.getConfidence() < rulesMinConfidence) {
+            return null;
+        }
+        EmailAnalysisResponse response = new EmailAnalysisResponse();
+        response.setLabel(rule.getLabel());
+        return response;
+    }
+
+    // Failed analyses carry the raw model output and are not cached, the next attempt may well succeed
+    private void cacheIfUsable(String cacheKey, EmailAnalysisResponse result) {
+        if (result.getRaw() == null) {
+            analysisCache.put(cacheKey, result);
+        }
+    }
 
-        String result = callOllama(prompt);
+    public CacheStats cacheStats() {
+        return analysisCache.stats();
+    }
+
+    private String promptVersion() {
+        String version = PROMPT_VERSION;
+        if (twoStage) {
+            version += "-two-stage";
+        }
+        if (extractionEnabled) {
+            version += extractionPromptHints ? "-hints" : "-fill";
+        }
+        if (structuredOutput) {
+            version += "-schema";
+        }
+        if (ollamaClient.isChat()) {
+            version += "-chat";
+        }
+        if (budgetEnabled) {
+            version += "-ctx" + tokenBudget.numCtx(OLLAMA_MODEL);
+        }
+        return version;
+    }
+
+    private EmailAnalysisResponse analyzeWithModel(String emailText) {
+        ExtractedFields extracted = extractFields(emailText);
+        ExtractedFields hints = extractionPromptHints ? extracted : null;
+        return mergeExtracted(callModel(fitToBudget(emailText, hints), hints), extracted);
+    }
+
+    private Mono<EmailAnalysisResponse> analyzeWithModelReactive(String emailText) {
+        ExtractedFields extracted = extractFields(emailText);
+        ExtractedFields hints = extractionPromptHints ? extracted : null;
+        return callModelReactive(fitToBudget(emailText, hints), hints)
+                .map(result -> mergeExtracted(result, extracted));
+    }
+
+    private ExtractedFields extractFields(String emailText) {
+        ExtractedFields extracted = extractionEnabled ? fieldExtractor.extract(emailText) : null;
+        return extracted != null && fieldExtractor.isEmpty(extracted) ? null : extracted;
+    }
+
+    // Fields are extracted from the whole mail, only the prompt gets the trimmed text
+    private String fitToBudget(String emailText, ExtractedFields hints) {
+        return budgetEnabled
+                ? tokenBudget.fit(emailText, tokenBudget.emailBudget(OLLAMA_MODEL, buildPrompt("", hints)))
+                : emailText;
+    }
+
+    private EmailAnalysisResponse mergeExtracted(EmailAnalysisResponse result, ExtractedFields fields) {
+        ExtractedContent extracted = fields != null ? fields.getContent() : null;
+        // With only a possible pincode there is nothing to fill, that number was a hint for the model
+        if (extracted != null && !fieldExtractor.isEmpty(extracted)) {
+            if (result.getRaw() != null && result.getExtractedContent() == null) {
+                // The model output could not be used, the pattern matches are better than nothing
+                result.setExtractedContent(extracted);
+            } else if (extractLabels.contains(result.getLabel())) {
+                if (result.getExtractedContent() == null) {
+                    result.setExtractedContent(extracted);
+                } else {
+                    fieldExtractor.fillMissing(result.getExtractedContent(), extracted);
+                }
+            }
+        }
+        return result;
+    }
+
+    private EmailAnalysisResponse callModel(String emailText, ExtractedFields hints) {
+        if (twoStage) {
+            // Most traffic needs only the label, so the extraction prompt runs only for labels that use it
+            EmailAnalysisResponse classification = classify(emailText);
+            String label = classification.getLabel();
+            if (LABELS.contains(label)) {
+                if (!extractLabels.contains(label)) {
+                    return classification;
+                }
+                EmailAnalysisResponse extraction = extract(emailText, label, hints);
+                extraction.setLabel(label);
+                return extraction;
+            }
+            // The label could not be read, fall back to the combined prompt
+        }
+
+        CompletionAccumulator result = callOllama(ANALYSIS_INSTRUCTIONS, userPrompt(emailText, hints), responseSchemas.analysis());
+        return extractJsonFromResponse(result);
+    }
+
+    private Mono<EmailAnalysisResponse> callModelReactive(String emailText, ExtractedFields hints) {
+        Mono<EmailAnalysisResponse> combined = Mono.defer(() ->
+                callOllamaReactive(ANALYSIS_INSTRUCTIONS, userPrompt(emailText, hints), responseSchemas.analysis())
+                        .map(this::extractJsonFromResponse));
+        if (!twoStage) {
+            return combined;
+        }
+        return callOllamaReactive(CLASSIFICATION_INSTRUCTIONS, "Email:\n" + emailText, responseSchemas.classification())
+                .map(this::extractJsonFromResponse)
+                .flatMap(classification -> {
+                    String label = classification.getLabel();
+                    if (!LABELS.contains(label)) {
+                        return combined;
+                    }
+                    if (!extractLabels.contains(label)) {
+                        return Mono.just(classification);
+                    }
+                    return callOllamaReactive(EXTRACTION_INSTRUCTIONS.formatted(label), userPrompt(emailText, hints),
+                            responseSchemas.extraction())
+                            .map(this::extractJsonFromResponse)
+                            .map(extraction -> {
+                                extraction.setLabel(label);
+                                return extraction;
+                            });
+                });
+    }
+
+    String buildPrompt(String emailText, ExtractedFields hints) {
+        return ANALYSIS_INSTRUCTIONS + userPrompt(emailText, hints);
+    }
+
+    // The per-email part, kept after the fixed instructions so those stay a reusable prefix
+    private String userPrompt(String emailText, ExtractedFields hints) {
+        return promptHints(hints) + "Email:\n" + emailText;
+    }
+
+    private EmailAnalysisResponse classify(String emailText) {
+        CompletionAccumulator result = callOllama(CLASSIFICATION_INSTRUCTIONS, "Email:\n" + emailText,
+                responseSchemas.classification());
         return extractJsonFromResponse(result);
     }
-} 
\ No newline at end of file
+
+    private EmailAnalysisResponse extract(String emailText, String label, ExtractedFields hints) {
+        CompletionAccumulator result = callOllama(EXTRACTION_INSTRUCTIONS.formatted(label), userPrompt(emailText, hints),
+                responseSchemas.extraction());
+        return extractJsonFromResponse(result);
+    }
+
+    private String promptHints(ExtractedFields hints) {
+        if (hints == null) {
+            return "";
+        }
+        StringBuilder block = new StringBuilder("Hints found by pattern matching, use them only if the email agrees:\n");
+        ExtractedContent content = hints.getContent();
+        if (content.getAmount() != null) {
+            block.append("- amount: ").append(content.getAmount()).append('\n');
+        }
+        Address address = content.getShippingAddress();
+        if (address != null && address.getPincode() != null) {
+            block.append("- pincode: ").append(address.getPincode()).append('\n');
+        }
+        if (hints.getPossiblePincode() != null) {
+            block.append("- possible pincode, unlabelled and may be another number: ")
+                    .append(hints.getPossiblePincode()).append('\n');
+        }
+        if (address != null && address.getPhoneNumber() != null) {
+            block.append("- phone_number: ").append(address.getPhoneNumber()).append('\n');
+        }
+        Address billing = content.getBillingAddress();
+        if (billing != null && billing.getPincode() != null) {
+            block.append("- billing pincode: ").append(billing.getPincode()).append('\n');
+        }
+        if (billing != null && billing.getPhoneNumber() != null) {
+            block.append("- billing phone_number: ").append(billing.getPhoneNumber()).append('\n');
+        }
+        return block.append('\n').toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,321 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cuts what the model does not need from an email before it is prompted: quoted
+ * reply chains, signatures, legal and unsubscribe footers and tracking URLs, with
+ * whitespace collapsed. Lines that carry what we extract are never dropped as
+ * boilerplate: numbers of four or more digits (order ids, OTPs, pincodes), currency
+ * amounts, and order, invoice, tracking or address fields.
+ */
+@Component
+public class EmailTextCleaner {
+
+    // Below this much text of its own a mail is treated as a forward, and the quoted part is the content
+    private static final int MIN_OWN_CONTENT = 20;
+    private static final int MAX_BOILERPLATE_PARAGRAPH_LINES = 8;
+    private static final int MAX_BOILERPLATE_PARAGRAPH_CHARS = 1000;
+    private static final int MAX_REPLY_HEADER_LENGTH = 250;
+
+    private static final List<String> BOILERPLATE = List.of(
+            "unsubscribe", "view in browser", "view this email in your browser", "view it in your browser",
+            "view as a web page", "manage preferences", "email preferences", "update your preferences",
+            "privacy policy", "privacy notice", "terms of use", "terms of service", "terms and conditions",
+            "all rights reserved", "intended recipient", "intended solely for", "confidentiality notice",
+            "this email is confidential", "this e-mail is confidential", "this message is confidential",
+            "may contain confidential", "contains confidential", "confidential and privileged",
+            "privileged and confidential", "confidential and/or privileged", "privileged and/or confidential",
+            "legally privileged",
+            "do not reply", "do-not-reply", "please don't reply", "this is an automated", "automatically generated",
+            "you are receiving this", "you're receiving this", "you received this", "add us to your address book",
+            "follow us", "download our app", "download the app", "get the app", "registered office");
+
+    // A line with one of these is a field of the order or the address, even inside a footer
+    private static final List<String> FIELDS = List.of(
+            "order", "invoice", "receipt", "refund", "otp",
+            "tracking", "awb", "shipment", "total", "subtotal", "amount", "price", "paid",
+            "address", "ship to", "deliver to", "delivering to", "landmark", "pincode", "pin code",
+            "postal code", "zip code", "phone", "mobile");
+
+    // Angle-bracketed URLs follow their link text in mailer-generated plain text and are dropped, bare ones keep the host
+    private static final Pattern URL = Pattern.compile(
+            "<(?:https?://|mailto:)[^>\\s]*>|\\bhttps?://(?<host>[^/\\s?#<>\"']+)[^\\s<>\"']*");
+    private static final Pattern REPLY_HEADER = Pattern.compile("(?i)^On\\s.+\\swrote:$");
+    private static final Pattern ORIGINAL_MESSAGE = Pattern.compile("(?i)^-{2,}\\s*Original Message\\s*-{2,}$");
+    private static final Pattern FORWARD_MARKER = Pattern.compile("(?i)^-*\\s*(?:forwarded message|begin forwarded message:?)\\s*-*$");
+    private static final Pattern OUTLOOK_SEPARATOR = Pattern.compile("^_{10,}$");
+    private static final Pattern AMOUNT = Pattern.compile(
+            "(?:[\\u20B9$\\u20AC\\u00A3]|\\b(?i:rs|inr|usd|eur|gbp)\\b\\.?)\\s?\\d");
+    private static final Pattern COPYRIGHT_NOTICE = Pattern.compile("(?i)^(?:\\u00A9|copyright\\b|\\(c\\)\\s*(?:19|20)\\d\\d)");
+
+    // Boilerplate phrases come first, a match at or past BOILERPLATE.size() is a field
+    private final KeywordAutomaton keywords = new KeywordAutomaton(concat(BOILERPLATE, FIELDS));
+
+    public String clean(String text) {
+        String[] lines = lines(text);
+        List<String> kept = new ArrayList<>(lines.length);
+        int i = copyHeaderBlock(lines, kept);
+
+        int ownContent = 0;
+        for (; i < lines.length; i++) {
+            String line = collapse(lines[i]);
+            if (isSignatureDelimiter(lines[i]) || isReplyHeader(lines, i)) {
+                if (ownContent >= MIN_OWN_CONTENT) {
+                    break;
+                }
+                // A forward without a comment of its own, the quoted message is what there is to analyze
+                continue;
+            }
+            if (isForwardMarker(line)) {
+                continue;
+            }
+            if (line.startsWith(">")) {
+                if (ownContent >= MIN_OWN_CONTENT) {
+                    continue;
+                }
+                line = unquote(line);
+            } else {
+                ownContent += nonBlankLength(line);
+            }
+            if (line.toLowerCase(Locale.ROOT).startsWith("sent from my ")) {
+                continue;
+            }
+            kept.add(stripUrls(line));
+        }
+        return join(dropBoilerplate(kept));
+    }
+
+    // String.split only has a fast path for single-character patterns, "\r?\n" would go through the regex engine
+    private static String[] lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) >= 0) {
+            lines.add(text.substring(start, end > start && text.charAt(end - 1) == '\r' ? end - 1 : end));
+            start = end + 1;
+        }
+        lines.add(text.substring(start));
+        return lines.toArray(new String[0]);
+    }
+
+    // The sender and subject lines the parsers put in front of the body are kept as they are
+    private static int copyHeaderBlock(String[] lines, List<String> kept) {
+        int i = 0;
+        while (i < lines.length && (lines[i].startsWith("From: ") || lines[i].startsWith("Subject: "))) {
+            kept.add(collapse(lines[i++]));
+        }
+        if (i > 0 && i < lines.length && lines[i].isBlank()) {
+            kept.add("");
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isSignatureDelimiter(String line) {
+        return line.equals("-- ") || line.equals("--");
+    }
+
+    // The first character picks the one pattern worth trying, most lines are rejected without a regex
+    private static boolean isReplyHeader(String[] lines, int i) {
+        String line = lines[i].strip();
+        if (line.isEmpty()) {
+            return false;
+        }
+        char first = line.charAt(0);
+        if (first == '-') {
+            return ORIGINAL_MESSAGE.matcher(line).matches();
+        }
+        if (first == '_') {
+            return OUTLOOK_SEPARATOR.matcher(line).matches()
+                    && i + 1 < lines.length && lines[i + 1].strip().startsWith("From:");
+        }
+        if (line.startsWith("From:")) {
+            // Outlook puts From, Sent, To and Subject lines in front of the quoted message
+            for (int j = i + 1; j < Math.min(lines.length, i + 4); j++) {
+                if (lines[j].strip().startsWith("Sent:")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (line.length() > 3 && line.regionMatches(true, 0, "On ", 0, 3)) {
+            // Gmail wraps long "On ... wrote:" lines
+            String header = line.endsWith(":") || i + 1 >= lines.length ? line : line + " " + lines[i + 1].strip();
+            return header.length() <= MAX_REPLY_HEADER_LENGTH && REPLY_HEADER.matcher(header).matches();
+        }
+        return false;
+    }
+
+    private static boolean isForwardMarker(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        char first = Character.toLowerCase(line.charAt(0));
+        return (first == '-' || first == 'b' || first == 'f') && FORWARD_MARKER.matcher(line).matches();
+    }
+
+    // Paragraphs small enough to be a footer go as a whole, in larger blocks only the matching lines
+    private List<String> dropBoilerplate(List<String> lines) {
+        // Per line: 1 boilerplate, -1 carries a field and must stay, 0 neither
+        int[] kind = new int[lines.size()];
+        for (int i = 0; i < kind.length; i++) {
+            kind[i] = classify(lines.get(i));
+        }
+
+        List<String> result = new ArrayList<>(lines.size());
+        int start = 0;
+        while (start < lines.size()) {
+            int end = start;
+            int chars = 0;
+            boolean boilerplate = false;
+            boolean keep = false;
+            while (end < lines.size() && !lines.get(end).isEmpty()) {
+                chars += lines.get(end).length();
+                boilerplate |= kind[end] == 1;
+                keep |= kind[end] == -1;
+                end++;
+            }
+            boolean dropParagraph = boilerplate && !keep
+                    && end - start <= MAX_BOILERPLATE_PARAGRAPH_LINES && chars <= MAX_BOILERPLATE_PARAGRAPH_CHARS;
+            for (int i = start; i < end && !dropParagraph; i++) {
+                if (kind[i] != 1) {
+                    result.add(lines.get(i));
+                }
+            }
+            if (end < lines.size()) {
+                result.add("");
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private int classify(String line) {
+        if (hasLongNumber(line) || hasAmount(line)) {
+            return -1;
+        }
+        boolean[] found = {false, false};
+        keywords.scan(line, (keyword, start, end) -> found[keyword < BOILERPLATE.size() ? 0 : 1] = true);
+        if (found[1]) {
+            return -1;
+        }
+        return found[0] || COPYRIGHT_NOTICE.matcher(line).lookingAt() ? 1 : 0;
+    }
+
+    // Four or more digits in a row, not counting years such as in a copyright line
+    private static boolean hasLongNumber(String line) {
+        int run = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i < line.length() && Character.isDigit(line.charAt(i))) {
+                run++;
+                continue;
+            }
+            if (run > 4 || (run == 4 && !isYear(line, i - 4))) {
+                return true;
+            }
+            run = 0;
+        }
+        return false;
+    }
+
+    // "$19.99", "Rs. 1,299.00", "INR 450", the regex only runs on lines with a digit
+    private static boolean hasAmount(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (Character.isDigit(line.charAt(i))) {
+                return AMOUNT.matcher(line).find();
+            }
+        }
+        return false;
+    }
+
+    private static boolean isYear(String line, int start) {
+        return (line.charAt(start) == '1' && line.charAt(start + 1) == '9')
+                || (line.charAt(start) == '2' && line.charAt(start + 1) == '0');
+    }
+
+    private static String stripUrls(String line) {
+        if (line.indexOf("://") < 0 && line.indexOf("mailto:") < 0) {
+            return line;
+        }
+        Matcher matcher = URL.matcher(line);
+        StringBuilder stripped = new StringBuilder(line.length());
+        while (matcher.find()) {
+            String host = matcher.group("host");
+            matcher.appendReplacement(stripped, host == null ? "" : Matcher.quoteReplacement(host));
+        }
+        matcher.appendTail(stripped);
+        return collapse(stripped.toString());
+    }
+
+    private static String unquote(String line) {
+        int i = 0;
+        while (i < line.length() && (line.charAt(i) == '>' || line.charAt(i) == ' ')) {
+            i++;
+        }
+        return line.substring(i);
+    }
+
+    // Trims the line and turns runs of spaces, tabs and invisible characters into one space
+    private static String collapse(String line) {
+        StringBuilder collapsed = new StringBuilder(line.length());
+        boolean space = false;
+        boolean changed = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\u200B' || c == '\u200C' || c == '\u200D' || c == '\u034F' || c == '\uFEFF') {
+                changed = true;
+            } else if (c == '\u00A0' || Character.isWhitespace(c)) {
+                changed |= c != ' ' || space || collapsed.length() == 0;
+                space = true;
+            } else {
+                if (space && collapsed.length() > 0) {
+                    collapsed.append(' ');
+                }
+                space = false;
+                collapsed.append(c);
+            }
+        }
+        return changed || space ? collapsed.toString() : line;
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static int nonBlankLength(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // At most one blank line between paragraphs, none at either end
+    private static String join(List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        boolean blank = false;
+        for (String line : lines) {
+            if (line.isEmpty()) {
+                blank = text.length() > 0;
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append(blank ? "\n\n" : "\n");
+            }
+            text.append(line);
+            blank = false;
+        }
+        return text.toString();
+    }
+}
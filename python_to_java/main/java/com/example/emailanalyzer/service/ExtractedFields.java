@@ -0,0 +1,28 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.ExtractedContent;
+
+/**
+ * What {@link FieldExtractor} found in an email. The content holds values reliable
+ * enough to fill gaps in the model's answer; a six-digit number without a PIN label
+ * or address around it may just as well be an order number or OTP, so it is only
+ * offered to the model as a possible pincode.
+ */
+public final class ExtractedFields {
+
+    private final ExtractedContent content;
+    private final String possiblePincode;
+
+    public ExtractedFields(ExtractedContent content, String possiblePincode) {
+        this.content = content;
+        this.possiblePincode = possiblePincode;
+    }
+
+    public ExtractedContent getContent() {
+        return content;
+    }
+
+    public String getPossiblePincode() {
+        return possiblePincode;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.Address;
+import com.example.emailanalyzer.model.ExtractedContent;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls the amount, pincode and phone number out of an email with one precompiled
+ * pattern and a single scan. Amounts are parsed straight from the text, only the
+ * chosen pincode and phone number are copied out.
+ *
+ * <p>Order IDs, OTPs and item counts look like pincodes and totals, so a total needs a
+ * currency or decimals and a six-digit pincode a PIN label or an address line around it.
+ * Pincodes and phone numbers after a billing heading go to the billing address, all
+ * others to the shipping address.
+ */
+@Component
+public class FieldExtractor {
+
+    // The word forms must stand alone, or "orders 12" and "48 hours 2" would read as amounts
+    private static final String CURRENCY = "(?:\\u20B9|\\$|\\u20AC|\\u00A3|\\b(?i:rs\\.?|inr|usd|eur)(?![a-zA-Z]))";
+    private static final String US_STATE = "AL|AK|AZ|AR|CA|CO|CT|DE|DC|FL|GA|HI|ID|IL|IN|IA|KS|KY|LA|ME|MD|MA|MI|MN|MS|MO"
+            + "|MT|NE|NV|NH|NJ|NM|NY|NC|ND|OH|OK|OR|PA|RI|SC|SD|TN|TX|UT|VT|VA|WA|WV|WI|WY";
+    private static final String NUMBER = "\\d{1,3}(?:,\\d{2,3})+(?:\\.\\d{1,2})?|\\d+(?:\\.\\d{1,2})?";
+    private static final String DECIMAL = "\\d{1,3}(?:,\\d{2,3})*\\.\\d{2}|\\d+\\.\\d{2}";
+    private static final String INDIAN_PIN = "[1-9]\\d{2}\\s?\\d{3}(?!\\d)";
+    // After the pincode an address line holds at most the country
+    private static final Pattern ADDRESS_LINE_END = Pattern.compile("[\\s,.]*(?i:india)?[\\s,.]*");
+    private static final Pattern ADDRESS_HEADING = Pattern.compile("\\b(?i:(?<billing>billing\\s+address|bill\\s+to)"
+            + "|shipping\\s+address|ship\\s+to|deliver(?:y|ing)?\\s+(?:address|to))\\b");
+
+    private static final Pattern FIELDS = Pattern.compile(
+            "(?<total>\\b(?i:grand\\s+total|order\\s+total|total\\s+amount|amount\\s+paid|total\\s+paid|total)"
+                    + "\\s*[:\\-]?\\s*(?:" + CURRENCY + "\\s*(?<totalValue>" + NUMBER + ")|(?<totalDecimal>" + DECIMAL + ")))"
+                    + "|(?<currency>" + CURRENCY + "\\s*(?<currencyValue>" + NUMBER + "))"
+                    + "|(?<phone>(?<![\\d+])(?:\\+?91[\\-\\s]?)?[6-9]\\d{4}[\\-\\s]?\\d{5}(?!\\d)"
+                    + "|(?<!\\d)\\(?\\d{3}\\)?[\\-\\s.]\\d{3}[\\-\\s.]\\d{4}(?!\\d))"
+                    + "|(?:\\b(?i:pin\\s?code|pin|postal\\s+code)\\s*[:\\-]?\\s*(?<labelledPin>" + INDIAN_PIN + "))"
+                    // US ZIP codes after "City, ST", the comma keeps "Order ID 40213" out
+                    + "|(?<zip>(?<=,\\s?(?:" + US_STATE + ")\\s)\\d{5}(?:-\\d{4})?(?!\\d))"
+                    + "|(?<pincode>(?<!\\d)" + INDIAN_PIN + ")");
+
+    public ExtractedFields extract(CharSequence text) {
+        Matcher matcher = FIELDS.matcher(text);
+        Matcher headings = ADDRESS_HEADING.matcher(text);
+        boolean moreHeadings = headings.find();
+        boolean inBilling = false;
+        double total = Double.NaN;
+        double largestAmount = Double.NaN;
+        Address shipping = new Address();
+        Address billing = new Address();
+        String possiblePincode = null;
+
+        while (matcher.find()) {
+            while (moreHeadings && headings.start() < matcher.start()) {
+                inBilling = headings.start("billing") >= 0;
+                moreHeadings = headings.find();
+            }
+            Address address = inBilling ? billing : shipping;
+            if (matcher.start("total") >= 0) {
+                // The last labelled total wins, it is usually the grand total after tax and shipping
+                String value = matcher.start("totalValue") >= 0 ? "totalValue" : "totalDecimal";
+                total = parseAmount(text, matcher.start(value), matcher.end(value));
+            } else if (matcher.start("currency") >= 0) {
+                double amount = parseAmount(text, matcher.start("currencyValue"), matcher.end("currencyValue"));
+                if (Double.isNaN(largestAmount) || amount > largestAmount) {
+                    largestAmount = amount;
+                }
+            } else if (matcher.start("phone") >= 0) {
+                if (address.getPhoneNumber() == null) {
+                    address.setPhoneNumber(matcher.group("phone"));
+                }
+            } else if (matcher.start("labelledPin") >= 0 || matcher.start("zip") >= 0) {
+                if (address.getPincode() == null) {
+                    address.setPincode(matcher.group(matcher.start("zip") >= 0 ? "zip" : "labelledPin").replace(" ", ""));
+                }
+            } else if (address.getPincode() == null && endsAddressLine(text, matcher.start(), matcher.end())) {
+                address.setPincode(matcher.group("pincode").replace(" ", ""));
+            } else if (possiblePincode == null) {
+                possiblePincode = matcher.group("pincode").replace(" ", "");
+            }
+        }
+
+        ExtractedContent content = new ExtractedContent();
+        double amount = Double.isNaN(total) ? largestAmount : total;
+        if (!Double.isNaN(amount)) {
+            content.setAmount(amount);
+        }
+        content.setShippingAddress(isEmpty(shipping) ? null : shipping);
+        content.setBillingAddress(isEmpty(billing) ? null : billing);
+        return new ExtractedFields(content, shipping.getPincode() == null && billing.getPincode() == null
+                ? possiblePincode : null);
+    }
+
+    // Fills fields the model left null with the extracted values, each address only from its own block
+    public void fillMissing(ExtractedContent target, ExtractedContent extracted) {
+        if (target.getAmount() == null) {
+            target.setAmount(extracted.getAmount());
+        }
+        target.setShippingAddress(fillAddress(target.getShippingAddress(), extracted.getShippingAddress()));
+        target.setBillingAddress(fillAddress(target.getBillingAddress(), extracted.getBillingAddress()));
+    }
+
+    public boolean isEmpty(ExtractedFields extracted) {
+        return isEmpty(extracted.getContent()) && extracted.getPossiblePincode() == null;
+    }
+
+    public boolean isEmpty(ExtractedContent extracted) {
+        return extracted.getAmount() == null && extracted.getShippingAddress() == null
+                && extracted.getBillingAddress() == null;
+    }
+
+    private static boolean isEmpty(Address address) {
+        return address.getPincode() == null && address.getPhoneNumber() == null;
+    }
+
+    // "Koramangala, Bengaluru, Karnataka 560034": a comma earlier on the line and nothing but the country after
+    private static boolean endsAddressLine(CharSequence text, int start, int end) {
+        int lineStart = start;
+        boolean comma = false;
+        while (lineStart > 0 && text.charAt(lineStart - 1) != '\n') {
+            comma |= text.charAt(--lineStart) == ',';
+        }
+        int lineEnd = end;
+        while (lineEnd < text.length() && text.charAt(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        return comma && ADDRESS_LINE_END.matcher(text).region(end, lineEnd).matches();
+    }
+
+    private static Address fillAddress(Address address, Address hints) {
+        if (hints == null) {
+            return address;
+        }
+        if (address == null) {
+            address = new Address();
+        }
+        if (address.getPincode() == null) {
+            address.setPincode(hints.getPincode());
+        }
+        if (address.getPhoneNumber() == null) {
+            address.setPhoneNumber(hints.getPhoneNumber());
+        }
+        return address;
+    }
+
+    private static double parseAmount(CharSequence text, int start, int end) {
+        long whole = 0;
+        long fraction = 0;
+        long scale = 1;
+        boolean inFraction = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                inFraction = true;
+            } else if (c >= '0' && c <= '9') {
+                if (inFraction) {
+                    fraction = fraction * 10 + (c - '0');
+                    scale *= 10;
+                } else {
+                    whole = whole * 10 + (c - '0');
+                }
+            }
+        }
+        return whole + (double) fraction / scale;
+    }
+}
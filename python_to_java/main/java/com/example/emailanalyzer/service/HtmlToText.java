@@ -0,0 +1,274 @@
+package com.example.emailanalyzer.service;
+
+import java.util.Map;
+
+/**
+ * Single-pass HTML to plain text conversion for emails without a text/plain part.
+ * Tags, comments, scripts and styles are dropped, block elements become line breaks,
+ * common entities are decoded and whitespace is collapsed. Input can be fed in
+ * chunks, so a streamed part never has to be held as markup.
+ */
+public class HtmlToText {
+
+    private static final int TEXT = 0;
+    private static final int TAG_OPEN = 1;
+    private static final int TAG = 2;
+    private static final int COMMENT = 3;
+    private static final int ENTITY = 4;
+    private static final int RAW = 5;
+
+    private static final int MAX_TAG_NAME = 12;
+    private static final int MAX_ENTITY = 10;
+
+    private static final Map<String, String> ENTITIES = Map.ofEntries(
+            Map.entry("nbsp", " "), Map.entry("amp", "&"), Map.entry("lt", "<"), Map.entry("gt", ">"),
+            Map.entry("quot", "\""), Map.entry("apos", "'"), Map.entry("copy", "\u00A9"), Map.entry("reg", "\u00AE"),
+            Map.entry("trade", "\u2122"), Map.entry("hellip", "..."), Map.entry("ndash", "-"), Map.entry("mdash", "-"),
+            Map.entry("lsquo", "'"), Map.entry("rsquo", "'"), Map.entry("ldquo", "\""), Map.entry("rdquo", "\""),
+            Map.entry("bull", "*"), Map.entry("middot", "*"), Map.entry("euro", "\u20AC"), Map.entry("pound", "\u00A3"),
+            Map.entry("zwnj", ""), Map.entry("zwj", ""), Map.entry("shy", ""));
+
+    private final StringBuilder out;
+    private final int maxChars;
+    private int state = TEXT;
+    private final StringBuilder tagName = new StringBuilder(MAX_TAG_NAME);
+    private boolean tagNameDone;
+    private boolean closingTag;
+    private char quote;
+    private char lastTagChar;
+    private final StringBuilder entity = new StringBuilder(MAX_ENTITY);
+    private int commentDashes;
+    // Inside <script> or <style>: the closing tag being matched, and how much of it has been seen
+    private String rawEnd;
+    private int rawMatched;
+    private boolean pendingSpace;
+    private boolean pendingBreak;
+
+    public HtmlToText(StringBuilder out, int maxChars) {
+        this.out = out;
+        this.maxChars = maxChars;
+    }
+
+    public static String convert(CharSequence html) {
+        StringBuilder text = new StringBuilder(html.length() / 2);
+        HtmlToText converter = new HtmlToText(text, Integer.MAX_VALUE);
+        converter.append(html, 0, html.length());
+        converter.finish();
+        return text.toString();
+    }
+
+    public boolean isFull() {
+        return out.length() >= maxChars;
+    }
+
+    public void append(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length && !isFull(); i++) {
+            accept(chars[i]);
+        }
+    }
+
+    public void append(CharSequence chars, int start, int end) {
+        for (int i = start; i < end && !isFull(); i++) {
+            accept(chars.charAt(i));
+        }
+    }
+
+    /**
+     * Ends the input. Text still held back, an "&" that never became an entity or a
+     * trailing "<", is written out as it was.
+     */
+    public void finish() {
+        if (state == ENTITY) {
+            emitLiteral('&', entity, (char) 0);
+        } else if (state == TAG_OPEN) {
+            emit('<');
+        }
+        state = TEXT;
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case TEXT -> text(c);
+            case TAG_OPEN -> tagOpen(c);
+            case TAG -> tag(c);
+            case COMMENT -> comment(c);
+            case ENTITY -> entity(c);
+            default -> raw(c);
+        }
+    }
+
+    private void text(char c) {
+        if (c == '<') {
+            state = TAG_OPEN;
+        } else if (c == '&') {
+            entity.setLength(0);
+            state = ENTITY;
+        } else {
+            emit(c);
+        }
+    }
+
+    private void tagOpen(char c) {
+        if (isAsciiLetter(c) || c == '/' || c == '!' || c == '?') {
+            tagName.setLength(0);
+            tagNameDone = false;
+            closingTag = c == '/';
+            quote = 0;
+            lastTagChar = c;
+            if (!closingTag) {
+                tagName.append(Character.toLowerCase(c));
+            }
+            state = TAG;
+        } else {
+            // A bare "<" in text, as in "a < b"
+            emit('<');
+            state = TEXT;
+            text(c);
+        }
+    }
+
+    private void tag(char c) {
+        if (quote != 0) {
+            if (c == quote) {
+                quote = 0;
+            }
+            return;
+        }
+        if (!tagNameDone) {
+            if (tagName.length() == 3 && tagName.charAt(0) == '!' && tagName.charAt(1) == '-' && tagName.charAt(2) == '-') {
+                commentDashes = 0;
+                state = COMMENT;
+                comment(c);
+                return;
+            }
+            if (c == '>' || c == '/' || Character.isWhitespace(c)) {
+                tagNameDone = true;
+            } else if (tagName.length() < MAX_TAG_NAME) {
+                tagName.append(Character.toLowerCase(c));
+            }
+        }
+        if (c == '"' || c == '\'') {
+            if (tagNameDone) {
+                quote = c;
+            }
+        } else if (c == '>') {
+            endTag(lastTagChar == '/');
+        }
+        lastTagChar = c;
+    }
+
+    private void endTag(boolean selfClosing) {
+        state = TEXT;
+        String name = tagName.toString();
+        if (!closingTag && !selfClosing && (name.equals("script") || name.equals("style"))) {
+            rawEnd = "</" + name;
+            rawMatched = 0;
+            state = RAW;
+            return;
+        }
+        switch (name) {
+            case "br", "p", "div", "tr", "li", "ul", "ol", "table", "h1", "h2", "h3", "h4", "h5", "h6",
+                    "hr", "blockquote", "section", "article", "header", "footer", "title", "center" -> pendingBreak = true;
+            case "td", "th", "img" -> pendingSpace = true;
+            default -> {
+                // inline element, no separator
+            }
+        }
+    }
+
+    private void comment(char c) {
+        if (c == '>' && commentDashes >= 2) {
+            state = TEXT;
+        }
+        commentDashes = c == '-' ? commentDashes + 1 : 0;
+    }
+
+    private void raw(char c) {
+        if (Character.toLowerCase(c) == rawEnd.charAt(rawMatched)) {
+            if (++rawMatched == rawEnd.length()) {
+                // The rest of the closing tag is read as an ordinary tag
+                tagName.setLength(0);
+                tagName.append(rawEnd, 2, rawEnd.length());
+                tagNameDone = false;
+                closingTag = true;
+                quote = 0;
+                lastTagChar = 0;
+                state = TAG;
+            }
+        } else {
+            rawMatched = c == '<' ? 1 : 0;
+        }
+    }
+
+    private void entity(char c) {
+        if (c == ';') {
+            state = TEXT;
+            String decoded = decodeEntity(entity.toString());
+            if (decoded == null) {
+                emitLiteral('&', entity, ';');
+            } else {
+                for (int i = 0; i < decoded.length(); i++) {
+                    emit(decoded.charAt(i));
+                }
+            }
+        } else if ((isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '#') && entity.length() < MAX_ENTITY) {
+            entity.append(c);
+        } else {
+            // Not an entity after all, keep the text as written
+            state = TEXT;
+            emitLiteral('&', entity, (char) 0);
+            text(c);
+        }
+    }
+
+    private static String decodeEntity(String name) {
+        if (name.length() > 1 && name.charAt(0) == '#') {
+            try {
+                boolean hex = name.charAt(1) == 'x' || name.charAt(1) == 'X';
+                int codePoint = hex ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+                return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ENTITIES.get(name);
+    }
+
+    private void emitLiteral(char first, CharSequence middle, char last) {
+        emit(first);
+        for (int i = 0; i < middle.length(); i++) {
+            emit(middle.charAt(i));
+        }
+        if (last != 0) {
+            emit(last);
+        }
+    }
+
+    private void emit(char c) {
+        if (c == '\u00A0' || Character.isWhitespace(c)) {
+            pendingSpace = true;
+            return;
+        }
+        // Zero-width characters that marketing mails use to pad preview text
+        if (c == '\u200B' || c == '\u200C' || c == '\u200D' || c == '\u034F' || c == '\uFEFF' || c == '\u00AD') {
+            return;
+        }
+        if (out.length() > 0) {
+            char last = out.charAt(out.length() - 1);
+            if (pendingBreak) {
+                if (last != '\n') {
+                    out.append('\n');
+                }
+            } else if (pendingSpace && last != '\n' && last != ' ') {
+                out.append(' ');
+            }
+        }
+        pendingBreak = false;
+        pendingSpace = false;
+        out.append(c);
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.Part;
+import javax.mail.Session;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.ParseException;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Parses an .eml with javax.mail into the text used for analysis. Thread-safe: the
+ * one {@link Session} is created up front and only read afterwards.
+ */
+@Component
+public class JavaMailEmlParser {
+
+    private final Session session = Session.getInstance(new Properties());
+
+    public String parse(byte[] fileBytes) throws MessagingException, IOException {
+        MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(fileBytes));
+
+        StringBuilder text = new StringBuilder();
+        StreamingEmlParser.appendSenderAndSubject(text, message.getHeader("From", ", "), message.getHeader("Subject", null));
+        BodyText body = new BodyText(text);
+        appendText(message, 0, body);
+        // HTML is only used for mails that come without any plain text
+        if (!body.hasPlainText() && body.html != null) {
+            text.append(body.html);
+        }
+        return text.toString();
+    }
+
+    private void appendText(Part part, int depth, BodyText body) throws MessagingException, IOException {
+        // Parsed once, every isMimeType call would parse the header again
+        ContentType contentType = contentType(part);
+        if (contentType.match("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                appendText(multipart.getBodyPart(i), depth + 1, body);
+            }
+        } else if (contentType.match("message/rfc822")) {
+            appendText((Part) part.getContent(), depth + 1, body);
+        } else if (contentType.match("text/html")) {
+            // Only needed while no plain text has turned up
+            if (!body.hasPlainText()) {
+                body.appendHtml(part.getContent().toString());
+            }
+        } else if (depth == 0 ? contentType.match("text/*") : contentType.match("text/plain")) {
+            StreamingEmlParser.separatePart(body.text, body.start);
+            body.text.append(part.getContent().toString());
+        }
+    }
+
+    private static ContentType contentType(Part part) throws MessagingException {
+        try {
+            return new ContentType(part.getContentType());
+        } catch (ParseException e) {
+            // Same fallback as javax.mail uses when it cannot parse the header
+            return new ContentType("text", "plain", null);
+        }
+    }
+
+    // Plain text goes straight after the headers, HTML is converted aside in case no plain text turns up
+    private static final class BodyText {
+        private final StringBuilder text;
+        private final int start;
+        private StringBuilder html;
+
+        BodyText(StringBuilder text) {
+            this.text = text;
+            this.start = text.length();
+        }
+
+        boolean hasPlainText() {
+            return StreamingEmlParser.hasText(text, start);
+        }
+
+        void appendHtml(String markup) {
+            if (html == null) {
+                html = new StringBuilder(markup.length() / 2);
+            } else {
+                html.append('\n');
+            }
+            HtmlToText converter = new HtmlToText(html, Integer.MAX_VALUE);
+            converter.append(markup, 0, markup.length());
+            converter.finish();
+        }
+    }
+}
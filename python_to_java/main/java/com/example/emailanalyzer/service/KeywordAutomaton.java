@@ -0,0 +1,132 @@
+package com.example.emailanalyzer.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over lowercase ASCII keywords. Matching is case-insensitive,
+ * one table lookup per input character, and keywords only match on word boundaries.
+ */
+public class KeywordAutomaton {
+
+    public interface MatchListener {
+        void onMatch(int keyword, int start, int end);
+    }
+
+    private static final int ALPHABET = 128;
+
+    private final int[][] transitions;
+    // For each state, the keywords ending there, including those reached through failure links
+    private final int[][] outputs;
+    private final int[] lengths;
+    private final boolean[] wordStart;
+    private final boolean[] wordEnd;
+
+    public KeywordAutomaton(List<String> keywords) {
+        List<int[]> gotoTable = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        gotoTable.add(newState());
+        out.add(new ArrayList<>());
+        lengths = new int[keywords.size()];
+        wordStart = new boolean[keywords.size()];
+        wordEnd = new boolean[keywords.size()];
+
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k).toLowerCase(Locale.ROOT);
+            lengths[k] = keyword.length();
+            // Boundaries are only enforced on edges that are word characters, so "% off" still matches "50% off"
+            wordStart[k] = Character.isLetterOrDigit(keyword.charAt(0));
+            wordEnd[k] = Character.isLetterOrDigit(keyword.charAt(keyword.length() - 1));
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c >= ALPHABET) {
+                    throw new IllegalArgumentException("Keywords must be ASCII: " + keyword);
+                }
+                if (gotoTable.get(state)[c] < 0) {
+                    gotoTable.get(state)[c] = gotoTable.size();
+                    gotoTable.add(newState());
+                    out.add(new ArrayList<>());
+                }
+                state = gotoTable.get(state)[c];
+            }
+            out.get(state).add(k);
+        }
+
+        // Breadth-first pass turns the trie into a full DFA by folding in the failure links
+        int[] failure = new int[gotoTable.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        int[] root = gotoTable.get(0);
+        for (int c = 0; c < ALPHABET; c++) {
+            if (root[c] < 0) {
+                root[c] = 0;
+            } else {
+                queue.add(root[c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] next = gotoTable.get(state);
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = next[c];
+                if (child < 0) {
+                    next[c] = gotoTable.get(failure[state])[c];
+                    continue;
+                }
+                failure[child] = gotoTable.get(failure[state])[c];
+                out.get(child).addAll(out.get(failure[child]));
+                queue.add(child);
+            }
+        }
+
+        transitions = gotoTable.toArray(new int[0][]);
+        outputs = new int[out.size()][];
+        for (int s = 0; s < outputs.length; s++) {
+            outputs[s] = out.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public void scan(CharSequence text, MatchListener listener) {
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            } else if (c == '\n' || c == '\r' || c == '\t') {
+                // Wrapped lines still match keywords that contain a space
+                c = ' ';
+            } else if (c >= ALPHABET) {
+                // Keywords are ASCII, so any other character cannot be part of a match
+                state = 0;
+                continue;
+            }
+            state = transitions[state][c];
+            for (int keyword : outputs[state]) {
+                int start = i - lengths[keyword] + 1;
+                if ((!wordStart[keyword] || isBoundary(text, start - 1))
+                        && (!wordEnd[keyword] || isBoundary(text, i + 1))) {
+                    listener.onMatch(keyword, start, i + 1);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return lengths.length;
+    }
+
+    private static boolean isBoundary(CharSequence text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+}
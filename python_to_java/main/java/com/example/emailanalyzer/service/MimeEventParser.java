@@ -0,0 +1,163 @@
+package com.example.emailanalyzer.service;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeUtility;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event-driven MIME walker. It reports the headers of the message and of each part
+ * to a {@link Handler}, which decides per part whether the body is decoded and
+ * handed over, skipped without decoding, or whether parsing stops altogether.
+ */
+public class MimeEventParser {
+
+    private static final int MAX_HEADER_BYTES = 256 * 1024;
+    private static final int MAX_DEPTH = 10;
+
+    public enum Action {
+        CONSUME, SKIP, STOP
+    }
+
+    public interface Handler {
+        /**
+         * Called once with the top-level headers. Returning false stops parsing.
+         */
+        boolean onMessage(InternetHeaders headers) throws MessagingException, IOException;
+
+        /**
+         * Called for every leaf part: the body of a single-part message at depth 0, otherwise the
+         * non-multipart parts at any nesting depth.
+         */
+        Action onPart(InternetHeaders headers, ContentType contentType, int depth);
+
+        /**
+         * Receives the transfer-decoded body of a consumed part. Returning false stops parsing.
+         */
+        boolean onBody(InternetHeaders headers, ContentType contentType, InputStream body) throws IOException;
+    }
+
+    public void parse(InputStream input, Handler handler) throws MessagingException, IOException {
+        ParseBuffers buffers = ParseBuffers.acquire();
+        try {
+            parse(input, handler, buffers);
+        } finally {
+            ParseBuffers.release(buffers);
+        }
+    }
+
+    void parse(InputStream input, Handler handler, ParseBuffers buffers) throws MessagingException, IOException {
+        MimeInput in = new MimeInput(input, buffers.inputBuffer(0));
+        InternetHeaders headers = readHeaders(in, buffers);
+        if (!handler.onMessage(headers)) {
+            return;
+        }
+        walk(headers, new PartInputStream(in, null, buffers.partChunk(0)), 0, handler, buffers);
+    }
+
+    // Descends into multiparts and attached messages, every other part is a leaf. Returns false when the handler asked to stop
+    private boolean walk(InternetHeaders headers, PartInputStream body, int depth, Handler handler, ParseBuffers buffers)
+            throws MessagingException, IOException {
+        ContentType contentType = contentType(headers);
+        if (depth < MAX_DEPTH && contentType.match("multipart/*") && contentType.getParameter("boundary") != null) {
+            MimeInput in = new MimeInput(body, buffers.inputBuffer(depth + 1));
+            return walkMultipart(in, delimiter(contentType), depth + 1, handler, buffers);
+        }
+        if (depth < MAX_DEPTH && contentType.match("message/rfc822")) {
+            // A forwarded or bounced message, its body is walked like the outer one
+            MimeInput in = new MimeInput(decode(body, headers), buffers.inputBuffer(depth + 1));
+            PartInputStream messageBody = new PartInputStream(in, null, buffers.partChunk(depth + 1));
+            return walk(readHeaders(in, buffers), messageBody, depth + 1, handler, buffers);
+        }
+        return leaf(headers, contentType, body, depth, handler);
+    }
+
+    private boolean walkMultipart(MimeInput in, byte[] delimiter, int depth, Handler handler, ParseBuffers buffers)
+            throws MessagingException, IOException {
+        // Parts at the same depth are read one after the other, so they share one chunk buffer
+        byte[] chunk = buffers.partChunk(depth);
+        PartInputStream preamble = new PartInputStream(in, delimiter, chunk);
+        preamble.skipRemaining();
+        boolean lastPart = preamble.isLastPart();
+        while (!lastPart) {
+            InternetHeaders partHeaders = readHeaders(in, buffers);
+            PartInputStream body = new PartInputStream(in, delimiter, chunk);
+            if (!walk(partHeaders, body, depth, handler, buffers)) {
+                return false;
+            }
+            body.skipRemaining();
+            lastPart = body.isLastPart();
+        }
+        return true;
+    }
+
+    private boolean leaf(InternetHeaders headers, ContentType contentType, PartInputStream body, int depth,
+                         Handler handler) throws IOException {
+        Action action = handler.onPart(headers, contentType, depth);
+        if (action == Action.STOP) {
+            return false;
+        }
+        if (action == Action.SKIP) {
+            return true;
+        }
+        return handler.onBody(headers, contentType, decode(body, headers));
+    }
+
+    private static InputStream decode(InputStream body, InternetHeaders headers) {
+        String encoding = headers.getHeader("Content-Transfer-Encoding", null);
+        if (encoding == null) {
+            return body;
+        }
+        try {
+            return MimeUtility.decode(body, encoding.trim());
+        } catch (MessagingException e) {
+            // Unknown transfer encoding, hand over the raw bytes
+            return body;
+        }
+    }
+
+    private static InternetHeaders readHeaders(MimeInput in, ParseBuffers buffers) throws MessagingException, IOException {
+        InternetHeaders headers = new InternetHeaders();
+        byte[] chunk = buffers.headerChunk();
+        StringBuilder line = new StringBuilder();
+        int total = 0;
+        int n;
+        while ((n = in.readLine(chunk, 0, chunk.length)) > 0) {
+            total += n;
+            if (total > MAX_HEADER_BYTES) {
+                throw new MessagingException("Header block larger than " + MAX_HEADER_BYTES + " bytes");
+            }
+            boolean lineEnd = chunk[n - 1] == '\n';
+            int length = lineEnd ? n - (n > 1 && chunk[n - 2] == '\r' ? 2 : 1) : n;
+            line.append(new String(chunk, 0, length, StandardCharsets.ISO_8859_1));
+            if (!lineEnd) {
+                continue;
+            }
+            if (line.length() == 0) {
+                break;
+            }
+            headers.addHeaderLine(line.toString());
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            headers.addHeaderLine(line.toString());
+        }
+        return headers;
+    }
+
+    private static ContentType contentType(InternetHeaders headers) throws MessagingException {
+        String value = headers.getHeader("Content-Type", null);
+        return new ContentType(value == null ? "text/plain" : value);
+    }
+
+    private static byte[] delimiter(ContentType contentType) throws MessagingException {
+        String boundary = contentType.getParameter("boundary");
+        if (boundary == null) {
+            throw new MessagingException("Missing boundary parameter in " + contentType);
+        }
+        return ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.emailanalyzer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Buffered byte source for the MIME walker. Lines are copied out in bounded
+ * chunks, so a base64 body without line breaks never needs more than one buffer.
+ */
+final class MimeInput extends InputStream {
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+
+    MimeInput(InputStream in, byte[] buffer) {
+        this.in = in;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Copies bytes up to and including the next LF into {@code dst}, but no more than
+     * {@code max}. Returns the number of bytes copied, or -1 at the end of the stream.
+     */
+    int readLine(byte[] dst, int off, int max) throws IOException {
+        int copied = 0;
+        while (copied < max) {
+            if (pos == limit && !fill()) {
+                return copied == 0 ? -1 : copied;
+            }
+            int end = Math.min(limit, pos + (max - copied));
+            int i = pos;
+            while (i < end && buffer[i] != '\n') {
+                i++;
+            }
+            boolean lineEnd = i < end;
+            if (lineEnd) {
+                i++;
+            }
+            System.arraycopy(buffer, pos, dst, off + copied, i - pos);
+            copied += i - pos;
+            pos = i;
+            if (lineEnd) {
+                break;
+            }
+        }
+        return copied;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
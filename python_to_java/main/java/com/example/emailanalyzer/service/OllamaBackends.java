@@ -0,0 +1,393 @@
+package com.example.emailanalyzer.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Ollama servers configured in {@code ollama.urls}. Each request goes to the
+ * backend with the lowest outstanding requests times EWMA time to first byte, so a
+ * server busy with a huge email gets no new work while others have capacity. A server
+ * that has not answered yet counts as slow as the slowest one that has, so it is probed
+ * rather than handed every request until its first answer. When the best backend has
+ * no free connection the next best one is taken instead of waiting.
+ *
+ * <p>A backend is ejected for {@code ollama.backends.ejection-time} after
+ * {@code max-failures} failed requests in a row, a failed {@code /api/version}
+ * health check, or when its latency is {@code slow-factor} times the median of the
+ * others for several answers in a row; a single slow answer, e.g. to a huge email,
+ * is not enough. When every backend is ejected the least loaded one is used regardless.
+ */
+@Component
+public class OllamaBackends {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaBackends.class);
+    private static final double EWMA_WEIGHT = 0.3;
+    // Slow answers in a row before a backend is ejected as slow, so one outlier does not do it
+    private static final int MIN_SLOW_SAMPLES = 5;
+
+    private final List<Backend> backends = new ArrayList<>();
+    private final AtomicInteger nextStart = new AtomicInteger();
+    private final int maxFailures;
+    private final Duration ejectionTime;
+    private final double slowFactor;
+    private final HttpClient httpClient;
+    private final Duration healthCheckTimeout;
+    private final ScheduledExecutorService healthChecks;
+
+    @Autowired
+    public OllamaBackends(@Value("${ollama.urls:${ollama.url:http://localhost:11434}}") List<String> urls,
+                          @Value("${ollama.http.max-connections-per-route:8}") int maxConnectionsPerBackend,
+                          @Value("${ollama.backends.max-failures:3}") int maxFailures,
+                          @Value("${ollama.backends.ejection-time:30s}") Duration ejectionTime,
+                          @Value("${ollama.backends.slow-factor:3.0}") double slowFactor,
+                          @Qualifier("ollamaHttpClient") HttpClient httpClient,
+                          @Value("${ollama.backends.health-check-interval:10s}") Duration healthCheckInterval,
+                          @Value("${ollama.backends.health-check-timeout:2s}") Duration healthCheckTimeout) {
+        for (String url : urls) {
+            String trimmed = url.strip();
+            backends.add(new Backend(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed,
+                    maxConnectionsPerBackend));
+        }
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("ollama.urls is empty");
+        }
+        this.maxFailures = maxFailures;
+        this.ejectionTime = ejectionTime;
+        this.slowFactor = slowFactor;
+        this.httpClient = httpClient;
+        this.healthCheckTimeout = healthCheckTimeout;
+        if (healthCheckInterval.isZero()) {
+            this.healthChecks = null;
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ollama-health-check-");
+            threadFactory.setDaemon(true);
+            this.healthChecks = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            long period = healthCheckInterval.toMillis();
+            // The first check runs right away, a backend that is down at startup gets no traffic
+            healthChecks.scheduleWithFixedDelay(this::checkHealth, 0, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Picks a backend and takes one of its connections, waiting up to {@code timeout}
+     * for the best one when every backend is at its connection limit. The caller reports
+     * the outcome and then calls {@link #release(Backend)}.
+     */
+    public Backend acquire(Duration timeout) {
+        return await(acquireAsync(timeout));
+    }
+
+    /**
+     * Takes a connection to this backend in particular, ejected or not, e.g. to load the
+     * model on each of them.
+     */
+    public Backend acquire(Backend backend, Duration timeout) {
+        return await(waitFor(backend, timeout));
+    }
+
+    private Backend await(CompletableFuture<Backend> waiter) {
+        try {
+            return waiter.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(waiter);
+            throw new ResourceAccessException("Interrupted waiting for an Ollama connection");
+        } catch (ExecutionException e) {
+            throw (ResourceAccessException) e.getCause();
+        }
+    }
+
+    /**
+     * Like {@link #acquire(Duration)}, but waits without holding a thread. A caller that
+     * gives up before the connection arrives hands the future to {@link #cancel(CompletableFuture)}.
+     */
+    public CompletableFuture<Backend> acquireAsync(Duration timeout) {
+        List<Backend> ranked = rank();
+        Backend free = takeFirstFree(ranked);
+        if (free != null) {
+            return CompletableFuture.completedFuture(free);
+        }
+        return waitFor(ranked.get(0), timeout);
+    }
+
+    private CompletableFuture<Backend> waitFor(Backend backend, Duration timeout) {
+        backend.outstanding.incrementAndGet();
+        CompletableFuture<Backend> waiter;
+        backend.lock.lock();
+        try {
+            // A connection may have come free since the first try
+            Backend taken = backend.waiters.isEmpty() ? backend.takeConnection() : null;
+            if (taken != null) {
+                return CompletableFuture.completedFuture(taken);
+            }
+            // Only this caller fails: the connections are busy with our own requests, which report
+            // the backend's failures themselves when it stops answering
+            waiter = backend.waiters.add(timeout,
+                    () -> new ResourceAccessException("Timed out waiting for a connection to " + backend.url));
+        } finally {
+            backend.lock.unlock();
+        }
+        waiter.whenComplete((connected, error) -> {
+            if (error != null) {
+                backend.outstanding.decrementAndGet();
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * Stops waiting for a connection, or releases it if it arrived in the meantime.
+     */
+    public void cancel(CompletableFuture<Backend> waiter) {
+        WaiterQueue.cancel(waiter, this::release);
+    }
+
+    /**
+     * Same as {@link #acquire(Duration)} but never waits, {@code null} when no backend
+     * has a free connection.
+     */
+    public Backend tryAcquire() {
+        return takeFirstFree(rank());
+    }
+
+    public void release(Backend backend) {
+        backend.lock.lock();
+        try {
+            backend.connectionsInUse--;
+        } finally {
+            backend.lock.unlock();
+        }
+        backend.outstanding.decrementAndGet();
+        backend.waiters.grant(backend::takeConnection, () -> backend.connectionsInUse--);
+    }
+
+    /**
+     * Records the time until the backend started answering.
+     */
+    public void succeeded(Backend backend, long latencyNanos) {
+        backend.consecutiveFailures.set(0);
+        backend.recordLatency(latencyNanos);
+        double median = medianOfOthers(backend);
+        if (median == 0 || latencyNanos <= slowFactor * median) {
+            backend.consecutiveSlow.set(0);
+        } else if (backend.consecutiveSlow.incrementAndGet() >= MIN_SLOW_SAMPLES && backend.ewmaNanos > slowFactor * median) {
+            eject(backend, MIN_SLOW_SAMPLES + " slow answers in a row, latency "
+                    + TimeUnit.NANOSECONDS.toMillis((long) backend.ewmaNanos) + "ms");
+        }
+    }
+
+    /**
+     * The backend could not be reached or failed with a server error.
+     */
+    public void failed(Backend backend) {
+        if (backend.consecutiveFailures.incrementAndGet() >= maxFailures) {
+            eject(backend, maxFailures + " failed requests in a row");
+        }
+    }
+
+    public List<Backend> backends() {
+        return List.copyOf(backends);
+    }
+
+    // Backends others wait for are left to them, barging in would starve the waiters
+    private static Backend takeFirstFree(List<Backend> ranked) {
+        for (Backend backend : ranked) {
+            backend.outstanding.incrementAndGet();
+            backend.lock.lock();
+            try {
+                if (backend.waiters.isEmpty() && backend.takeConnection() != null) {
+                    return backend;
+                }
+            } finally {
+                backend.lock.unlock();
+            }
+            backend.outstanding.decrementAndGet();
+        }
+        return null;
+    }
+
+    // Best first; when every backend is ejected they are all ranked, better to try one than to fail outright
+    private List<Backend> rank() {
+        long now = System.nanoTime();
+        int size = backends.size();
+        // Rotating the start spreads ties, such as idle backends that have no latency yet
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+        List<Candidate> candidates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Backend backend = backends.get((start + i) % size);
+            if (backend.isAvailable(now)) {
+                candidates.add(new Candidate(backend));
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (int i = 0; i < size; i++) {
+                candidates.add(new Candidate(backends.get((start + i) % size)));
+            }
+        }
+
+        double slowest = 0;
+        for (Candidate candidate : candidates) {
+            if (candidate.sampled) {
+                slowest = Math.max(slowest, candidate.latency);
+            }
+        }
+        for (Candidate candidate : candidates) {
+            double latency = candidate.sampled ? candidate.latency : Math.max(candidate.latency, slowest);
+            candidate.score = (candidate.outstanding + 1) * latency;
+        }
+        // Stable, so equal candidates keep the rotated order
+        candidates.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.score)
+                .thenComparingInt(candidate -> candidate.outstanding));
+        List<Backend> ranked = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            ranked.add(candidate.backend);
+        }
+        return ranked;
+    }
+
+    // Median latency of the other backends in rotation, 0 when none has answered yet
+    private double medianOfOthers(Backend backend) {
+        long now = System.nanoTime();
+        double[] others = backends.stream()
+                .filter(other -> other != backend && other.isAvailable(now) && other.samples > 0)
+                .mapToDouble(other -> other.ewmaNanos)
+                .sorted()
+                .toArray();
+        if (others.length == 0) {
+            return 0;
+        }
+        return others.length % 2 == 1
+                ? others[others.length / 2]
+                : (others[others.length / 2 - 1] + others[others.length / 2]) / 2;
+    }
+
+    private void eject(Backend backend, String reason) {
+        long until = System.nanoTime() + ejectionTime.toNanos();
+        if (backend.isAvailable(System.nanoTime())) {
+            log.warn("Ejecting Ollama backend {} for {}: {}", backend.url, ejectionTime, reason);
+        }
+        backend.ejectedUntil = until;
+        backend.consecutiveFailures.set(0);
+        backend.consecutiveSlow.set(0);
+        // The old average stays as a pessimistic estimate, so when it is back it gets probing traffic
+        // rather than everything, and the first new sample replaces it
+        backend.samples = 0;
+    }
+
+    private void checkHealth() {
+        for (Backend backend : backends) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(backend.url + "/api/version"))
+                    .timeout(healthCheckTimeout)
+                    .GET()
+                    .build();
+            try {
+                int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status != 200) {
+                    eject(backend, "health check returned " + status);
+                }
+            } catch (IOException e) {
+                eject(backend, "health check failed: " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+        }
+    }
+
+    // Load and latency read once, so concurrent requests cannot reorder the backends mid-sort
+    private static final class Candidate {
+        private final Backend backend;
+        private final int outstanding;
+        private final boolean sampled;
+        private final double latency;
+        private double score;
+
+        Candidate(Backend backend) {
+            this.backend = backend;
+            this.outstanding = backend.outstanding.get();
+            this.sampled = backend.samples > 0;
+            this.latency = backend.ewmaNanos;
+        }
+    }
+
+    /**
+     * One Ollama server with its connection limit and the state routing uses.
+     */
+    public static final class Backend {
+        private final String url;
+        private final int maxConnections;
+        // Guards the connection count and the queue waiting for one
+        private final ReentrantLock lock = new ReentrantLock();
+        private final WaiterQueue<Backend> waiters = new WaiterQueue<>(lock, Integer.MAX_VALUE);
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicInteger consecutiveSlow = new AtomicInteger();
+        private int connectionsInUse;
+        private volatile double ewmaNanos;
+        private volatile int samples;
+        private volatile long ejectedUntil = System.nanoTime();
+
+        Backend(String url, int maxConnections) {
+            this.url = url;
+            this.maxConnections = maxConnections;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public boolean isAvailable(long now) {
+            return now - ejectedUntil >= 0;
+        }
+
+        // With the lock held
+        private Backend takeConnection() {
+            if (connectionsInUse >= maxConnections) {
+                return null;
+            }
+            connectionsInUse++;
+            return this;
+        }
+
+        // Lost updates between racing requests only blur the average a little
+        private void recordLatency(long nanos) {
+            ewmaNanos = samples == 0 ? nanos : EWMA_WEIGHT * nanos + (1 - EWMA_WEIGHT) * ewmaNanos;
+            samples++;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.emailanalyzer.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the NDJSON stream of Ollama's {@code /api/chat} or {@code /api/generate}
+ * incrementally and hangs up as soon as the model has closed its top-level JSON
+ * object, which makes Ollama stop generating.
+ */
+@Component
+public class OllamaClient {
+
+    @Value("${ollama.api:chat}")
+    private String api;
+
+    @Value("${ollama.keep-alive:30m}")
+    private String keepAlive;
+
+    private final RestTemplate restTemplate;
+    private final OllamaBackends backends;
+    private final ObjectMapper objectMapper;
+    private final Duration connectionRequestTimeout;
+    private final Duration readTimeout;
+    private final ScheduledExecutorService watchdog;
+
+    @Autowired
+    public OllamaClient(@Qualifier("ollamaRestTemplate") RestTemplate restTemplate,
+                        OllamaBackends backends,
+                        @Value("${ollama.http.connection-request-timeout:30s}") Duration connectionRequestTimeout,
+                        @Value("${ollama.http.read-timeout:120s}") Duration readTimeout) {
+        this.restTemplate = restTemplate;
+        this.backends = backends;
+        this.objectMapper = new ObjectMapper();
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        this.readTimeout = readTimeout;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ollama-stream-watchdog-");
+        threadFactory.setDaemon(true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    public CompletionAccumulator generate(OllamaRequest generateRequest) {
+        applyDefaults(generateRequest);
+        return exchange(generateRequest, backends.acquire(connectionRequestTimeout));
+    }
+
+    /**
+     * Sends the request to this backend rather than the best one.
+     */
+    public CompletionAccumulator generate(OllamaRequest generateRequest, OllamaBackends.Backend backend) {
+        applyDefaults(generateRequest);
+        return exchange(generateRequest, backends.acquire(backend, connectionRequestTimeout));
+    }
+
+    private CompletionAccumulator exchange(OllamaRequest generateRequest, OllamaBackends.Backend backend) {
+        long start = System.nanoTime();
+        try {
+            return restTemplate.execute(backend.getUrl() + path(), HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        if (request instanceof StreamingHttpOutputMessage streaming) {
+                            // Written as the connection sends, instead of into a buffered copy first
+                            streaming.setBody(out -> writeRequest(generateRequest, out));
+                        } else {
+                            writeRequest(generateRequest, request.getBody());
+                        }
+                    },
+                    response -> {
+                        // Headers arrive with the first token, so this is queueing plus prompt evaluation
+                        backends.succeeded(backend, System.nanoTime() - start);
+                        return readStream(response, backend);
+                    });
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            // Unreachable, stalled or failing on its side; errors about the request itself do not count
+            backends.failed(backend);
+            throw e;
+        } finally {
+            backends.release(backend);
+        }
+    }
+
+    void applyDefaults(OllamaRequest generateRequest) {
+        if (generateRequest.getKeepAlive() == null) {
+            generateRequest.keepAlive(keepAlive);
+        }
+    }
+
+    String path() {
+        return isChat() ? "/api/chat" : "/api/generate";
+    }
+
+    void writeRequest(OllamaRequest generateRequest, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+            // The HTTP client owns the stream, the generator only flushes it
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generateRequest.writeTo(json, isChat());
+        }
+    }
+
+    public boolean isChat() {
+        return "chat".equals(api);
+    }
+
+    private CompletionAccumulator readStream(ClientHttpResponse response, OllamaBackends.Backend backend) throws IOException {
+        CompletionAccumulator completion = new CompletionAccumulator();
+        InputStream body = response.getBody();
+        IdleTimeout idleTimeout = new IdleTimeout(body);
+        // The NDJSON chunks are read token by token as one sequence of root-level objects,
+        // without a String per line or a tree per chunk
+        try (JsonParser chunks = objectMapper.getFactory().createParser(body)) {
+            while (chunks.nextToken() == JsonToken.START_OBJECT) {
+                idleTimeout.touch();
+                boolean done = false;
+                while (chunks.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = chunks.currentName();
+                    JsonToken value = chunks.nextToken();
+                    boolean complete = false;
+                    if ("response".equals(field) && value == JsonToken.VALUE_STRING) {
+                        complete = append(chunks, completion);
+                    } else if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                        complete = appendContent(chunks, completion);
+                    } else if ("done".equals(field)) {
+                        done = value == JsonToken.VALUE_TRUE;
+                    } else if ("error".equals(field)) {
+                        throw new RestClientException("Ollama error: " + chunks.getValueAsString());
+                    } else {
+                        // The final chunk carries the whole token context as a number array
+                        chunks.skipChildren();
+                    }
+                    if (complete) {
+                        // Closing the body before it is drained drops the connection, which cancels generation
+                        body.close();
+                        return completion;
+                    }
+                }
+                if (done) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            if (idleTimeout.expired) {
+                throw new ResourceAccessException("No data from " + backend.getUrl() + " for " + readTimeout);
+            }
+            throw e;
+        } finally {
+            idleTimeout.cancel();
+        }
+        return completion;
+    }
+
+    private static boolean append(JsonParser chunks, CompletionAccumulator completion) throws IOException {
+        return completion.append(chunks.getTextCharacters(), chunks.getTextOffset(), chunks.getTextLength());
+    }
+
+    // A chat chunk carries its fragment as message.content, the rest of the message is skipped
+    private static boolean appendContent(JsonParser chunks, CompletionAccumulator completion) throws IOException {
+        boolean complete = false;
+        while (chunks.nextToken() == JsonToken.FIELD_NAME) {
+            String field = chunks.currentName();
+            if (chunks.nextToken() == JsonToken.VALUE_STRING && "content".equals(field)) {
+                complete |= append(chunks, completion);
+            } else {
+                chunks.skipChildren();
+            }
+        }
+        return complete;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    // The request read timeout only covers the response headers, so a stalled stream is cut off here
+    private final class IdleTimeout implements Runnable {
+        private final InputStream body;
+        private final ScheduledFuture<?> check;
+        private volatile long lastRead = System.nanoTime();
+        private volatile boolean expired;
+
+        IdleTimeout(InputStream body) {
+            this.body = body;
+            long period = Math.max(readTimeout.toMillis() / 4, 100);
+            this.check = watchdog.scheduleWithFixedDelay(this, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        void touch() {
+            lastRead = System.nanoTime();
+        }
+
+        void cancel() {
+            check.cancel(false);
+        }
+
+        @Override
+        public void run() {
+            if (System.nanoTime() - lastRead > readTimeout.toNanos()) {
+                expired = true;
+                check.cancel(false);
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // the reading thread sees the closed stream either way
+                }
+            }
+        }
+    }
+}
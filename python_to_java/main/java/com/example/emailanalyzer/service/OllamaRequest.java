@@ -0,0 +1,122 @@
+package com.example.emailanalyzer.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A completion request, sent to {@code /api/chat} or {@code /api/generate} depending
+ * on {@code ollama.api}. {@link OllamaClient} writes it field by field straight into
+ * the HTTP request body, so the prompt is escaped on the way out and never copied
+ * into an intermediate JSON string.
+ *
+ * <p>The system text is the fixed instruction part of the prompt. As a chat system
+ * message it stays an identical prefix from request to request, which Ollama can
+ * reuse from its cache instead of evaluating it again.
+ */
+public class OllamaRequest {
+
+    private final String model;
+    private final String prompt;
+    private final Map<String, Object> options = new LinkedHashMap<>();
+    private String system;
+    private JsonNode format;
+    private String keepAlive;
+
+    public OllamaRequest(String model, String prompt) {
+        this.model = model;
+        this.prompt = prompt;
+    }
+
+    public OllamaRequest system(String system) {
+        this.system = system;
+        return this;
+    }
+
+    public OllamaRequest option(String name, Object value) {
+        options.put(name, value);
+        return this;
+    }
+
+    /**
+     * Restricts the answer to JSON matching this schema.
+     */
+    public OllamaRequest format(JsonNode schema) {
+        this.format = schema;
+        return this;
+    }
+
+    /**
+     * How long the model stays loaded after this request, in Ollama's duration format.
+     */
+    public OllamaRequest keepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public String getSystem() {
+        return system;
+    }
+
+    public Map<String, Object> getOptions() {
+        return options;
+    }
+
+    public JsonNode getFormat() {
+        return format;
+    }
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    void writeTo(JsonGenerator json, boolean chat) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("model", model);
+        if (chat) {
+            json.writeArrayFieldStart("messages");
+            if (system != null) {
+                writeMessage(json, "system", system);
+            }
+            writeMessage(json, "user", prompt);
+            json.writeEndArray();
+        } else {
+            // Sent as one prompt exactly as before the split, generate's own system field would change the template
+            json.writeStringField("prompt", system != null ? system + prompt : prompt);
+        }
+        if (format != null) {
+            json.writeFieldName("format");
+            json.writeTree(format);
+        }
+        if (!options.isEmpty()) {
+            json.writeObjectFieldStart("options");
+            for (Map.Entry<String, Object> option : options.entrySet()) {
+                json.writeFieldName(option.getKey());
+                json.writeObject(option.getValue());
+            }
+            json.writeEndObject();
+        }
+        if (keepAlive != null) {
+            json.writeStringField("keep_alive", keepAlive);
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeMessage(JsonGenerator json, String role, String content) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("role", role);
+        json.writeStringField("content", content);
+        json.writeEndObject();
+    }
+}
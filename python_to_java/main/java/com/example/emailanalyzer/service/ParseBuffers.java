@@ -0,0 +1,80 @@
+package com.example.emailanalyzer.service;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Scratch buffers and charset decoders for one parse at a time. Instances are pooled,
+ * so steady-state parsing allocates no I/O buffers. A pool rather than a ThreadLocal,
+ * so request threads that come and go do not each keep a set alive.
+ */
+final class ParseBuffers {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int POOL_SIZE = 64;
+    private static final BlockingQueue<ParseBuffers> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    // Only one part per nesting level is read at a time, so the buffers are kept per level
+    private final List<byte[]> inputBuffers = new ArrayList<>();
+    private final List<byte[]> partChunks = new ArrayList<>();
+    private final byte[] headerChunk = new byte[BUFFER_SIZE];
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final Map<Charset, CharsetDecoder> decoders = new HashMap<>();
+
+    private ParseBuffers() {
+    }
+
+    static ParseBuffers acquire() {
+        ParseBuffers buffers = POOL.poll();
+        return buffers != null ? buffers : new ParseBuffers();
+    }
+
+    static void release(ParseBuffers buffers) {
+        POOL.offer(buffers);
+    }
+
+    byte[] inputBuffer(int level) {
+        return buffer(inputBuffers, level);
+    }
+
+    byte[] partChunk(int level) {
+        return buffer(partChunks, level);
+    }
+
+    byte[] headerChunk() {
+        return headerChunk;
+    }
+
+    ByteBuffer bytes() {
+        return bytes.clear();
+    }
+
+    CharBuffer chars() {
+        return chars.clear();
+    }
+
+    // Malformed input is replaced like InputStreamReader does, a bad byte must not fail the whole mail
+    CharsetDecoder decoder(Charset charset) {
+        return decoders.computeIfAbsent(charset, c -> c.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE))
+                .reset();
+    }
+
+    private static byte[] buffer(List<byte[]> buffers, int level) {
+        while (buffers.size() <= level) {
+            buffers.add(new byte[BUFFER_SIZE]);
+        }
+        return buffers.get(level);
+    }
+}
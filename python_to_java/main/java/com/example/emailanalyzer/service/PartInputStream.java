@@ -0,0 +1,140 @@
+package com.example.emailanalyzer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Raw (still transfer-encoded) body of one MIME part. Ends at the next boundary
+ * delimiter line, or at the end of the input when there is no boundary.
+ */
+final class PartInputStream extends InputStream {
+
+    private final MimeInput in;
+    private final byte[] delimiter;
+    private final byte[] chunk;
+
+    private int chunkPos;
+    private int chunkEnd;
+    // The line break of the previous line is held back: before a delimiter it belongs to the delimiter
+    private int pendingBreak;
+    private int heldBreak;
+    private boolean atLineStart = true;
+    private boolean finished;
+    private boolean lastPart;
+
+    PartInputStream(MimeInput in, byte[] delimiter, byte[] chunk) {
+        this.in = in;
+        this.delimiter = delimiter;
+        this.chunk = chunk;
+    }
+
+    /**
+     * True once the part ended at a close delimiter or at the end of the input.
+     */
+    boolean isLastPart() {
+        return lastPart;
+    }
+
+    /**
+     * Reads past the rest of the part without copying or decoding it.
+     */
+    void skipRemaining() throws IOException {
+        while (!finished) {
+            chunkPos = chunkEnd;
+            pendingBreak = 0;
+            nextChunk();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        if (pendingBreak > 0) {
+            return pendingBreak-- == 2 ? '\r' : '\n';
+        }
+        return chunk[chunkPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = 0;
+        while (pendingBreak > 0 && n < len) {
+            b[off + n++] = (byte) (pendingBreak-- == 2 ? '\r' : '\n');
+        }
+        int copy = Math.min(len - n, chunkEnd - chunkPos);
+        System.arraycopy(chunk, chunkPos, b, off + n, copy);
+        chunkPos += copy;
+        return n + copy;
+    }
+
+    private boolean ensureData() throws IOException {
+        while (pendingBreak == 0 && chunkPos == chunkEnd) {
+            if (finished) {
+                return false;
+            }
+            nextChunk();
+        }
+        return true;
+    }
+
+    private void nextChunk() throws IOException {
+        int n = in.readLine(chunk, 0, chunk.length);
+        if (n < 0) {
+            finished = true;
+            lastPart = true;
+            // No delimiter follows the last line, either there is no boundary or the close delimiter is missing,
+            // so its break is part of the body
+            pendingBreak = heldBreak;
+            heldBreak = 0;
+            return;
+        }
+        boolean lineStart = atLineStart;
+        boolean lineEnd = chunk[n - 1] == '\n';
+        atLineStart = lineEnd;
+        if (lineStart && delimiter != null && isDelimiter(n)) {
+            finished = true;
+            lastPart = isCloseDelimiter(n);
+            return;
+        }
+        // The break held back from the previous line was not followed by a delimiter, so it is data
+        pendingBreak = heldBreak;
+        heldBreak = 0;
+        chunkPos = 0;
+        chunkEnd = n;
+        if (lineEnd) {
+            heldBreak = n > 1 && chunk[n - 2] == '\r' ? 2 : 1;
+            chunkEnd = n - heldBreak;
+        }
+    }
+
+    private boolean isDelimiter(int length) {
+        if (length < delimiter.length) {
+            return false;
+        }
+        for (int i = 0; i < delimiter.length; i++) {
+            if (chunk[i] != delimiter[i]) {
+                return false;
+            }
+        }
+        // Only "--" (close delimiter) or transport padding may follow the boundary
+        for (int i = delimiter.length; i < length; i++) {
+            byte b = chunk[i];
+            if (b != '-' && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCloseDelimiter(int length) {
+        return length >= delimiter.length + 2 && chunk[delimiter.length] == '-' && chunk[delimiter.length + 1] == '-';
+    }
+}
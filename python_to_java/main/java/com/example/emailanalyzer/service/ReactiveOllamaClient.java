@@ -0,0 +1,161 @@
+package com.example.emailanalyzer.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking counterpart of {@link OllamaClient} for the reactive API. The NDJSON
+ * chunks are decoded as they arrive and the subscription is cancelled as soon as the
+ * model has closed its JSON object, which closes the connection and stops generation.
+ * Routing, timeouts and failure accounting are the same as in the blocking client.
+ */
+@Component
+public class ReactiveOllamaClient {
+
+    private final WebClient webClient;
+    private final OllamaClient ollamaClient;
+    private final OllamaBackends backends;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Duration connectionRequestTimeout;
+    private final Duration readTimeout;
+
+    @Autowired
+    public ReactiveOllamaClient(@Qualifier("ollamaWebClient") WebClient webClient, OllamaClient ollamaClient,
+                                OllamaBackends backends,
+                                @Value("${ollama.http.connection-request-timeout:30s}") Duration connectionRequestTimeout,
+                                @Value("${ollama.http.read-timeout:120s}") Duration readTimeout) {
+        this.webClient = webClient;
+        this.ollamaClient = ollamaClient;
+        this.backends = backends;
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    public Mono<CompletionAccumulator> generate(OllamaRequest generateRequest) {
+        ollamaClient.applyDefaults(generateRequest);
+        return Mono.usingWhen(acquireBackend(),
+                backend -> {
+                    long start = System.nanoTime();
+                    AtomicReference<Connection> connection = new AtomicReference<>();
+                    return webClient.post()
+                            .uri(backend.getUrl() + ollamaClient.path())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(requestBody(generateRequest))
+                            .httpRequest(request -> {
+                                // Reactor Netty's request is also its connection
+                                if (request.getNativeRequest() instanceof Connection nettyConnection) {
+                                    connection.set(nettyConnection);
+                                }
+                            })
+                            .retrieve()
+                            .toEntityFlux(JsonNode.class)
+                            // Until the headers; readStream times the gaps between chunks after them
+                            .timeout(readTimeout)
+                            .onErrorMap(TimeoutException.class, e -> new ResourceAccessException(
+                                    "No response from " + backend.getUrl() + " within " + readTimeout))
+                            .flatMap(response -> {
+                                // Headers arrive with the first token, so this is queueing plus prompt evaluation
+                                backends.succeeded(backend, System.nanoTime() - start);
+                                return readStream(response.getBody(), backend);
+                            })
+                            .onErrorMap(WebClientRequestException.class, e -> new ResourceAccessException(
+                                    "I/O error on POST request for " + backend.getUrl() + ": " + e.getMessage()))
+                            .onErrorMap(ReadTimeoutException.class, e -> new ResourceAccessException(
+                                    "No data from " + backend.getUrl() + " for " + readTimeout))
+                            .doOnError(e -> {
+                                // Unreachable, stalled or failing on its side; errors about the request itself do not count
+                                if (e instanceof ResourceAccessException || (e instanceof WebClientResponseException response
+                                        && response.getStatusCode().is5xxServerError())) {
+                                    backends.failed(backend);
+                                }
+                            })
+                            // A cancel before the body is subscribed would otherwise read the rest of
+                            // the stream to reuse the connection, and the model would keep generating
+                            .doOnCancel(() -> {
+                                Connection open = connection.get();
+                                if (open != null) {
+                                    open.dispose();
+                                }
+                            });
+                },
+                backend -> Mono.fromRunnable(() -> backends.release(backend)));
+    }
+
+    // Waits for a connection without a thread; a cancelled request leaves the queue
+    private Mono<OllamaBackends.Backend> acquireBackend() {
+        return Mono.create(sink -> {
+            CompletableFuture<OllamaBackends.Backend> waiter = backends.acquireAsync(connectionRequestTimeout);
+            sink.onCancel(() -> backends.cancel(waiter));
+            waiter.whenComplete((backend, error) -> {
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.success(backend);
+                }
+            });
+        });
+    }
+
+    private BodyInserter<OllamaRequest, ReactiveHttpOutputMessage> requestBody(OllamaRequest generateRequest) {
+        return (message, context) -> {
+            DataBuffer buffer = message.bufferFactory().allocateBuffer(4096);
+            try (OutputStream out = buffer.asOutputStream();
+                 JsonGenerator json = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+                generateRequest.writeTo(json, ollamaClient.isChat());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return message.writeWith(Mono.just(buffer));
+        };
+    }
+
+    private Mono<CompletionAccumulator> readStream(Flux<JsonNode> chunks, OllamaBackends.Backend backend) {
+        CompletionAccumulator completion = new CompletionAccumulator();
+        boolean chat = ollamaClient.isChat();
+        return chunks
+                // Between chunks, like the blocking client's idle timeout
+                .timeout(readTimeout)
+                .<Boolean>handle((chunk, sink) -> {
+                    JsonNode error = chunk.get("error");
+                    if (error != null) {
+                        sink.error(new RestClientException("Ollama error: " + error.asText()));
+                        return;
+                    }
+                    JsonNode fragment = chat ? chunk.path("message").get("content") : chunk.get("response");
+                    boolean complete = fragment != null && fragment.isTextual() && completion.append(fragment.textValue());
+                    sink.next(complete || chunk.path("done").asBoolean());
+                })
+                // Cancelling the body before it ends drops the connection, which cancels generation
+                .takeUntil(finished -> finished)
+                .onErrorMap(TimeoutException.class, e -> new ResourceAccessException(
+                        "No data from " + backend.getUrl() + " for " + readTimeout))
+                .then(Mono.just(completion));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.emailanalyzer.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers with the same key share one execution: the first
+ * caller runs the loader, the others wait on its future and get the same result.
+ */
+public class RequestCoalescer<V> {
+
+    private final ConcurrentMap<String, Call> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(String key, Supplier<V> loader) {
+        while (true) {
+            Call call = new Call(key);
+            Call existing = inFlight.putIfAbsent(key, call);
+            if (existing != null) {
+                // A blocked caller cannot cancel, so it keeps the execution alive until the end
+                if (existing.join()) {
+                    return await(existing.result);
+                }
+                inFlight.remove(key, existing);
+                continue;
+            }
+            try {
+                V value = loader.get();
+                call.result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                call.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, call);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #execute}, for a loader that completes later instead of blocking.
+     * Every caller gets its own copy of the shared future, so one caller cancelling does
+     * not cancel the others. Once all of them have cancelled, the loader's future is
+     * cancelled too.
+     */
+    public CompletableFuture<V> executeAsync(String key, Supplier<CompletableFuture<V>> loader) {
+        while (true) {
+            Call call = new Call(key);
+            Call existing = inFlight.putIfAbsent(key, call);
+            if (existing != null) {
+                if (existing.join()) {
+                    return existing.follow();
+                }
+                // Every caller of that one has left, it is on its way out
+                inFlight.remove(key, existing);
+                continue;
+            }
+            call.load(loader);
+            return call.follow();
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Rethrow the leader's own exception rather than the wrapper
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // One execution and the callers still waiting for it
+    private final class Call {
+
+        private final String key;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private int callers = 1;
+        private CompletableFuture<V> loading;
+
+        Call(String key) {
+            this.key = key;
+        }
+
+        synchronized boolean join() {
+            if (callers == 0) {
+                return false;
+            }
+            callers++;
+            return true;
+        }
+
+        void load(Supplier<CompletableFuture<V>> loader) {
+            try {
+                CompletableFuture<V> future = loader.get();
+                synchronized (this) {
+                    loading = future;
+                }
+                future.whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    } else {
+                        result.complete(value);
+                    }
+                    inFlight.remove(key, this);
+                });
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+                inFlight.remove(key, this);
+            }
+        }
+
+        CompletableFuture<V> follow() {
+            CompletableFuture<V> copy = result.copy();
+            copy.whenComplete((value, error) -> {
+                if (copy.isCancelled()) {
+                    leave();
+                }
+            });
+            return copy;
+        }
+
+        private void leave() {
+            CompletableFuture<V> abandoned;
+            synchronized (this) {
+                if (--callers > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = loading;
+            }
+            inFlight.remove(key, this);
+            if (abandoned != null) {
+                abandoned.cancel(false);
+            }
+        }
+    }
+}
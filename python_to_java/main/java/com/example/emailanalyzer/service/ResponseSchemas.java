@@ -0,0 +1,99 @@
+package com.example.emailanalyzer.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Collection;
+
+/**
+ * JSON schemas sent as Ollama's {@code format} so the model can only produce the
+ * snake_case shape of {@link com.example.emailanalyzer.model.EmailAnalysisResponse}.
+ * Every key is required and may be null, the model never has to decide whether to
+ * leave a key out.
+ */
+final class ResponseSchemas {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String[] ADDRESS_FIELDS = {
+            "address_line1", "address_line2", "city", "state", "pincode", "phone_number"};
+
+    private final ObjectNode analysis;
+    private final ObjectNode classification;
+    private final ObjectNode extraction;
+
+    ResponseSchemas(Collection<String> labels) {
+        ObjectNode label = NODES.objectNode().put("type", "string");
+        ArrayNode values = label.putArray("enum");
+        labels.stream().sorted().forEach(values::add);
+
+        this.analysis = object().set("properties", NODES.objectNode()
+                .<ObjectNode>set("label", label)
+                .set("extracted_content", nullable(extractedContent())));
+        this.classification = object().set("properties", NODES.objectNode().set("label", label));
+        this.extraction = object().set("properties", NODES.objectNode()
+                .set("extracted_content", nullable(extractedContent())));
+        require(analysis);
+        require(classification);
+        require(extraction);
+    }
+
+    /** Label and extracted content, for the single combined prompt. */
+    JsonNode analysis() {
+        return analysis;
+    }
+
+    /** Label only, for the first of the two-stage prompts. */
+    JsonNode classification() {
+        return classification;
+    }
+
+    /** Extracted content only, for the second of the two-stage prompts. */
+    JsonNode extraction() {
+        return extraction;
+    }
+
+    private static ObjectNode extractedContent() {
+        ObjectNode products = NODES.objectNode().put("type", "array");
+        products.putObject("items").put("type", "string");
+        ObjectNode content = object().set("properties", NODES.objectNode()
+                .<ObjectNode>set("products", products)
+                .<ObjectNode>set("amount", nullableType("number"))
+                .<ObjectNode>set("shipping_address", nullable(address()))
+                .set("billing_address", nullable(address())));
+        require(content);
+        return content;
+    }
+
+    private static ObjectNode address() {
+        ObjectNode properties = NODES.objectNode();
+        for (String field : ADDRESS_FIELDS) {
+            properties.set(field, nullableType("string"));
+        }
+        ObjectNode address = object().set("properties", properties);
+        require(address);
+        return address;
+    }
+
+    private static ObjectNode object() {
+        return NODES.objectNode().put("type", "object");
+    }
+
+    private static ObjectNode nullableType(String type) {
+        ObjectNode schema = NODES.objectNode();
+        schema.putArray("type").add(type).add("null");
+        return schema;
+    }
+
+    private static ObjectNode nullable(ObjectNode schema) {
+        ObjectNode either = NODES.objectNode();
+        either.putArray("anyOf").add(schema).addObject().put("type", "null");
+        return either;
+    }
+
+    private static void require(ObjectNode schema) {
+        ArrayNode required = schema.putArray("required");
+        schema.get("properties").fieldNames().forEachRemaining(required::add);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic classifier for the obvious OTP and Offer emails. Keywords from
+ * subject and body are matched in one pass each by a {@link KeywordAutomaton}
+ * and weighed together with sender rules. Transactional keywords count against
+ * both labels so that order and receipt mails still go to the model.
+ */
+@Component
+public class RuleBasedClassifier {
+
+    private static final String OTP = "OTP";
+    private static final String OFFER = "Offer";
+    private static final String OTHER = "Other";
+
+    private static final int HEADER_SCAN_LIMIT = 4096;
+    private static final int CODE_WINDOW = 80;
+
+    private static final Object[][] KEYWORDS = {
+            {"otp", OTP, 3.0},
+            {"one time password", OTP, 3.0},
+            {"one-time password", OTP, 3.0},
+            {"verification code", OTP, 2.5},
+            {"security code", OTP, 2.0},
+            {"login code", OTP, 2.0},
+            {"passcode", OTP, 2.0},
+            {"do not share", OTP, 1.5},
+            {"don't share", OTP, 1.5},
+            {"valid for", OTP, 1.0},
+            {"expires in", OTP, 1.0},
+
+            {"% off", OFFER, 2.0},
+            {"coupon", OFFER, 2.0},
+            {"promo code", OFFER, 2.0},
+            {"shop now", OFFER, 2.0},
+            {"buy 1 get 1", OFFER, 2.0},
+            {"discount", OFFER, 1.5},
+            {"sale", OFFER, 1.5},
+            {"offer", OFFER, 1.5},
+            {"cashback", OFFER, 1.5},
+            {"limited time", OFFER, 1.5},
+            {"deal", OFFER, 1.0},
+            {"deals", OFFER, 1.0},
+            {"exclusive", OFFER, 1.0},
+            {"hurry", OFFER, 1.0},
+            {"free shipping", OFFER, 1.0},
+            {"unsubscribe", OFFER, 1.0},
+
+            {"order confirmed", OTHER, 2.5},
+            {"order number", OTHER, 2.0},
+            {"order id", OTHER, 2.0},
+            {"invoice", OTHER, 2.0},
+            {"receipt", OTHER, 2.0},
+            {"refund", OTHER, 2.5},
+            {"shipped", OTHER, 2.0},
+            {"delivered", OTHER, 1.5},
+            {"shipping address", OTHER, 2.0},
+            {"billing address", OTHER, 2.0},
+            {"payment received", OTHER, 2.0},
+            {"password reset", OTHER, 2.0},
+    };
+
+    private static final String[][] SENDER_LOCAL_PARTS = {
+            {"otp", OTP}, {"verify", OTP}, {"verification", OTP}, {"auth", OTP},
+            {"offers", OFFER}, {"deals", OFFER}, {"promo", OFFER}, {"promotions", OFFER},
+            {"marketing", OFFER}, {"newsletter", OFFER}, {"news", OFFER},
+    };
+
+    private static final String[][] SENDER_DOMAIN_PREFIXES = {
+            {"offers.", OFFER}, {"deals.", OFFER}, {"promo.", OFFER}, {"marketing.", OFFER},
+            {"news.", OFFER}, {"newsletter.", OFFER},
+    };
+
+    private static final double SENDER_WEIGHT = 2.0;
+    private static final double SUBJECT_WEIGHT = 2.0;
+    private static final double CODE_WEIGHT = 1.5;
+
+    private final KeywordAutomaton automaton;
+    private final String[] keywordLabels;
+    private final double[] keywordWeights;
+
+    public RuleBasedClassifier() {
+        List<String> keywords = new ArrayList<>(KEYWORDS.length);
+        keywordLabels = new String[KEYWORDS.length];
+        keywordWeights = new double[KEYWORDS.length];
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            keywords.add((String) KEYWORDS[i][0]);
+            keywordLabels[i] = (String) KEYWORDS[i][1];
+            keywordWeights[i] = (Double) KEYWORDS[i][2];
+        }
+        automaton = new KeywordAutomaton(keywords);
+    }
+
+    public RuleClassification classify(String emailText) {
+        Scores scores = new Scores();
+        String subject = headerValue(emailText, "subject:");
+        String sender = headerValue(emailText, "from:");
+
+        if (subject != null) {
+            scan(subject, SUBJECT_WEIGHT, scores);
+        }
+        scan(emailText, 1.0, scores);
+        if (sender != null) {
+            scoreSender(sender, scores);
+        }
+        if (scores.otp > 0 && scores.otpCode) {
+            scores.otp += CODE_WEIGHT;
+        }
+
+        double top = Math.max(scores.otp, scores.offer);
+        if (top == 0) {
+            return RuleClassification.NONE;
+        }
+        String label = scores.otp >= scores.offer ? OTP : OFFER;
+        double rivals = scores.otp + scores.offer + scores.other - top;
+        double confidence = (1 - Math.exp(-top / 2)) * top / (top + rivals);
+        if (OTP.equals(label) && !scores.otpCode) {
+            // An OTP mail without a code is more likely an account notice
+            confidence *= 0.8;
+        }
+        return new RuleClassification(label, confidence);
+    }
+
+    private void scan(String text, double multiplier, Scores scores) {
+        boolean[] seen = new boolean[automaton.size()];
+        automaton.scan(text, (keyword, start, end) -> {
+            String label = keywordLabels[keyword];
+            if (OTP.equals(label) && !scores.otpCode) {
+                scores.otpCode = hasCodeNear(text, start, end);
+            }
+            // Repeating a keyword does not make the email more of that kind
+            if (seen[keyword]) {
+                return;
+            }
+            seen[keyword] = true;
+            scores.add(label, keywordWeights[keyword] * multiplier);
+        });
+    }
+
+    private void scoreSender(String sender, Scores scores) {
+        int at = sender.lastIndexOf('@');
+        if (at < 0) {
+            return;
+        }
+        int localStart = at;
+        while (localStart > 0 && !isAddressDelimiter(sender.charAt(localStart - 1))) {
+            localStart--;
+        }
+        int domainEnd = at + 1;
+        while (domainEnd < sender.length() && !isAddressDelimiter(sender.charAt(domainEnd))) {
+            domainEnd++;
+        }
+        String localPart = sender.substring(localStart, at).toLowerCase(Locale.ROOT);
+        String domain = sender.substring(at + 1, domainEnd).toLowerCase(Locale.ROOT);
+
+        for (String[] rule : SENDER_LOCAL_PARTS) {
+            if (localPart.equals(rule[0]) || localPart.startsWith(rule[0] + "-") || localPart.startsWith(rule[0] + ".")) {
+                scores.add(rule[1], SENDER_WEIGHT);
+                return;
+            }
+        }
+        for (String[] rule : SENDER_DOMAIN_PREFIXES) {
+            if (domain.startsWith(rule[0])) {
+                scores.add(rule[1], SENDER_WEIGHT);
+                return;
+            }
+        }
+    }
+
+    // Looks for a standalone 4-8 digit code close to an OTP keyword; amounts like 1,299.00 do not count
+    private static boolean hasCodeNear(String text, int start, int end) {
+        int from = Math.max(0, start - CODE_WINDOW);
+        int to = Math.min(text.length(), end + CODE_WINDOW);
+        int run = 0;
+        for (int i = from; i <= to; i++) {
+            if (i < to && Character.isDigit(text.charAt(i))) {
+                run++;
+                continue;
+            }
+            if (run >= 4 && run <= 8 && !continuesNumber(text, i - run - 1, -1) && !continuesNumber(text, i, 1)) {
+                return true;
+            }
+            run = 0;
+        }
+        return false;
+    }
+
+    private static boolean continuesNumber(String text, int separator, int direction) {
+        int next = separator + direction;
+        if (separator < 0 || separator >= text.length() || next < 0 || next >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(separator);
+        return (c == ',' || c == '.') && Character.isDigit(text.charAt(next));
+    }
+
+    private static boolean isAddressDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '<' || c == '>' || c == '"' || c == ',' || c == ';';
+    }
+
+    // Header lines such as "Subject: ..." are only looked for at the top of the text
+    private static String headerValue(String text, String name) {
+        int limit = Math.min(text.length(), HEADER_SCAN_LIMIT);
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > limit) {
+                lineEnd = limit;
+            }
+            if (text.regionMatches(true, lineStart, name, 0, name.length())) {
+                return text.substring(lineStart + name.length(), lineEnd).trim();
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    private static final class Scores {
+        private double otp;
+        private double offer;
+        private double other;
+        private boolean otpCode;
+
+        void add(String label, double weight) {
+            switch (label) {
+                case OTP -> otp += weight;
+                case OFFER -> offer += weight;
+                default -> other += weight;
+            }
+        }
+    }
+}
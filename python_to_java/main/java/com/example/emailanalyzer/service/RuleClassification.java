@@ -0,0 +1,22 @@
+package com.example.emailanalyzer.service;
+
+public final class RuleClassification {
+
+    public static final RuleClassification NONE = new RuleClassification(null, 0.0);
+
+    private final String label;
+    private final double confidence;
+
+    public RuleClassification(String label, double confidence) {
+        this.label = label;
+        this.confidence = confidence;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+}
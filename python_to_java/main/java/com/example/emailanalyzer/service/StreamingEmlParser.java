@@ -0,0 +1,206 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeUtility;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses an .eml straight from a stream. Only the headers and the text/plain
+ * parts, at any nesting depth, are decoded; text/html is converted to text only
+ * when there is no plain text. Attachments are skipped over undecoded, and parsing
+ * stops once {@code analysis.eml.max-text-chars} characters of text have been read.
+ */
+@Component
+public class StreamingEmlParser {
+
+    private static final Map<String, Charset> CHARSETS = new ConcurrentHashMap<>();
+
+    private final MimeEventParser mimeEventParser = new MimeEventParser();
+    private final int maxTextChars;
+
+    public StreamingEmlParser(@Value("${analysis.eml.max-text-chars:100000}") int maxTextChars) {
+        this.maxTextChars = maxTextChars;
+    }
+
+    public String parse(InputStream input) throws MessagingException, IOException {
+        ParseBuffers buffers = ParseBuffers.acquire();
+        try {
+            TextCollector collector = new TextCollector(buffers);
+            mimeEventParser.parse(input, collector, buffers);
+            return collector.result();
+        } finally {
+            ParseBuffers.release(buffers);
+        }
+    }
+
+    /**
+     * Puts the decoded sender and subject as {@code From:} and {@code Subject:} lines before
+     * the body. {@link RuleBasedClassifier} looks for them in the first characters of the text
+     * for its sender rules and weighs subject keywords higher, and the subject is often the
+     * clearest hint for the model as well. It costs a few prompt tokens, and the same body
+     * from another sender is a separate cache entry.
+     */
+    static void appendSenderAndSubject(StringBuilder text, String from, String subject) throws UnsupportedEncodingException {
+        appendHeader(text, "From", from);
+        appendHeader(text, "Subject", subject);
+        if (text.length() > 0) {
+            text.append('\n');
+        }
+    }
+
+    private static void appendHeader(StringBuilder text, String name, String value) throws UnsupportedEncodingException {
+        if (value != null && !value.isBlank()) {
+            text.append(name).append(": ").append(MimeUtility.decodeText(MimeUtility.unfold(value))).append('\n');
+        }
+    }
+
+    private static Charset charset(ContentType contentType) {
+        String charset = contentType.getParameter("charset");
+        if (charset == null) {
+            return StandardCharsets.UTF_8;
+        }
+        Charset cached = CHARSETS.get(charset);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Charset resolved = Charset.forName(MimeUtility.javaCharset(charset));
+            // Only names that resolve are cached, so junk charset names cannot grow the map
+            CHARSETS.put(charset, resolved);
+            return resolved;
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    // Parts end without their last line break, which belongs to the boundary, so the next one starts a new line
+    static void separatePart(StringBuilder text, int from) {
+        if (text.length() > from && text.charAt(text.length() - 1) != '\n') {
+            text.append('\n');
+        }
+    }
+
+    static boolean hasText(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private interface CharSink {
+        // Returns false once no more characters are wanted
+        boolean accept(char[] chars, int offset, int length);
+    }
+
+    private final class TextCollector implements MimeEventParser.Handler {
+        private final ParseBuffers buffers;
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder html = new StringBuilder();
+        private int headerLength;
+        private boolean plainText;
+
+        TextCollector(ParseBuffers buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public boolean onMessage(InternetHeaders headers) throws UnsupportedEncodingException {
+            appendSenderAndSubject(text, headers.getHeader("From", ", "), headers.getHeader("Subject", null));
+            headerLength = text.length();
+            return true;
+        }
+
+        @Override
+        public MimeEventParser.Action onPart(InternetHeaders headers, ContentType contentType, int depth) {
+            if (text.length() >= maxTextChars) {
+                return MimeEventParser.Action.STOP;
+            }
+            if (contentType.match("text/html")) {
+                // Only needed while no plain text has turned up
+                return plainText || html.length() >= maxTextChars ? MimeEventParser.Action.SKIP : MimeEventParser.Action.CONSUME;
+            }
+            // A single-part message is used whatever its text subtype, inside a multipart only text/plain is
+            boolean wanted = depth == 0 ? contentType.match("text/*") : contentType.match("text/plain");
+            return wanted ? MimeEventParser.Action.CONSUME : MimeEventParser.Action.SKIP;
+        }
+
+        @Override
+        public boolean onBody(InternetHeaders headers, ContentType contentType, InputStream body) throws IOException {
+            if (contentType.match("text/html")) {
+                if (html.length() > 0) {
+                    html.append('\n');
+                }
+                HtmlToText htmlToText = new HtmlToText(html, maxTextChars);
+                decode(body, charset(contentType), (chars, offset, length) -> {
+                    htmlToText.append(chars, offset, length);
+                    return !htmlToText.isFull();
+                });
+                htmlToText.finish();
+                return true;
+            }
+            separatePart(text, headerLength);
+            decode(body, charset(contentType), (chars, offset, length) -> {
+                text.append(chars, offset, Math.min(length, maxTextChars - text.length()));
+                return text.length() < maxTextChars;
+            });
+            plainText = plainText || hasText(text, headerLength);
+            return text.length() < maxTextChars;
+        }
+
+        // Same as reading through an InputStreamReader, but with the pooled buffers and decoder
+        private void decode(InputStream body, Charset charset, CharSink sink) throws IOException {
+            CharsetDecoder decoder = buffers.decoder(charset);
+            ByteBuffer bytes = buffers.bytes();
+            CharBuffer chars = buffers.chars();
+            boolean endOfInput = false;
+            while (true) {
+                if (!endOfInput) {
+                    int n = body.read(bytes.array(), bytes.position(), bytes.remaining());
+                    if (n < 0) {
+                        endOfInput = true;
+                    } else {
+                        bytes.position(bytes.position() + n);
+                    }
+                }
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                boolean done = endOfInput && result.isUnderflow();
+                if (done) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+                chars.flip();
+                boolean wanted = sink.accept(chars.array(), chars.position(), chars.remaining());
+                chars.clear();
+                if (done || !wanted) {
+                    return;
+                }
+            }
+        }
+
+        // HTML is the fallback for mails that come without any text/plain part
+        String result() {
+            if (!plainText && html.length() > 0) {
+                text.append(html, 0, Math.max(0, Math.min(html.length(), maxTextChars - text.length())));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.emailanalyzer.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the email part of a prompt inside the model's context window. Tokens are
+ * estimated from character classes rather than counted with the model's tokenizer,
+ * so the budget keeps some headroom. When an email does not fit, its lines are
+ * ranked by how likely they carry what we extract (amounts, addresses, order lines)
+ * and the best ones are kept in their original order.
+ *
+ * <p>Context size and answer length are configured per model with
+ * {@code analysis.budget.models.<model>.num-ctx} and {@code .num-predict}, falling
+ * back to {@code analysis.budget.num-ctx} and {@code analysis.budget.num-predict}.
+ */
+@Component
+public class TokenBudget {
+
+    private static final double HEADROOM = 0.9;
+    private static final int MAX_SEGMENT_LENGTH = 300;
+    private static final int LEADING_LINES = 5;
+    private static final String OMITTED = "[...]";
+
+    private static final Object[][] VALUE_KEYWORDS = {
+            {"total", 3.0}, {"subtotal", 3.0}, {"amount", 3.0}, {"price", 2.0}, {"paid", 2.0},
+            {"rs", 2.0}, {"inr", 2.0}, {"usd", 2.0}, {"eur", 2.0},
+            {"qty", 2.0}, {"quantity", 2.0}, {"item", 1.5}, {"order", 1.5}, {"invoice", 1.5},
+            {"shipping", 1.5}, {"delivery", 1.5}, {"billing", 1.5}, {"refund", 1.5},
+            {"address", 2.0}, {"road", 1.5}, {"street", 1.5}, {"nagar", 1.5}, {"city", 1.0}, {"state", 1.0},
+            {"pincode", 2.0}, {"pin", 1.0}, {"zip", 1.5}, {"phone", 2.0}, {"mobile", 2.0},
+            {"otp", 2.0}, {"code", 1.0},
+    };
+
+    private final Environment environment;
+    private final int defaultNumCtx;
+    private final int defaultNumPredict;
+    private final Map<String, int[]> modelLimits = new ConcurrentHashMap<>();
+    private final KeywordAutomaton valueKeywords;
+    private final double[] keywordWeights;
+
+    @Autowired
+    public TokenBudget(Environment environment,
+                       @Value("${analysis.budget.num-ctx:4096}") int defaultNumCtx,
+                       @Value("${analysis.budget.num-predict:512}") int defaultNumPredict) {
+        this.environment = environment;
+        this.defaultNumCtx = defaultNumCtx;
+        this.defaultNumPredict = defaultNumPredict;
+        List<String> keywords = new ArrayList<>(VALUE_KEYWORDS.length);
+        keywordWeights = new double[VALUE_KEYWORDS.length];
+        for (int i = 0; i < VALUE_KEYWORDS.length; i++) {
+            keywords.add((String) VALUE_KEYWORDS[i][0]);
+            keywordWeights[i] = (Double) VALUE_KEYWORDS[i][1];
+        }
+        this.valueKeywords = new KeywordAutomaton(keywords);
+    }
+
+    public int numCtx(String model) {
+        return limits(model)[0];
+    }
+
+    public int numPredict(String model) {
+        return limits(model)[1];
+    }
+
+    /**
+     * Tokens left for the email once the rest of the prompt and the answer are accounted for.
+     */
+    public int emailBudget(String model, CharSequence promptWithoutEmail) {
+        int available = numCtx(model) - numPredict(model) - estimateTokens(promptWithoutEmail);
+        return Math.max(0, (int) (available * HEADROOM));
+    }
+
+    /**
+     * Rough token count for Mistral and Llama style tokenizers: about four letters per
+     * token, one token per digit, punctuation mark and non-ASCII character.
+     */
+    public static int estimateTokens(CharSequence text) {
+        int tokens = 0;
+        int letters = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                letters++;
+                continue;
+            }
+            tokens += (letters + 3) / 4;
+            letters = 0;
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                tokens++;
+            }
+        }
+        return tokens + (letters + 3) / 4;
+    }
+
+    public String fit(String text, int maxTokens) {
+        if (estimateTokens(text) <= maxTokens) {
+            return text;
+        }
+        List<Segment> segments = segments(text);
+
+        // Highest value first, earlier segments win ties
+        List<Segment> ranked = new ArrayList<>(segments);
+        ranked.sort(Comparator.comparingDouble((Segment segment) -> -segment.score)
+                .thenComparingInt(segment -> segment.index));
+        int omittedCost = estimateTokens(OMITTED);
+        int used = 0;
+        for (Segment segment : ranked) {
+            // Every kept segment may need a marker for the gap before it
+            int cost = segment.tokens + omittedCost;
+            if (segment.score > 0 && used + cost <= maxTokens) {
+                segment.kept = true;
+                used += cost;
+            }
+        }
+
+        StringBuilder fitted = new StringBuilder(used * 4);
+        boolean gap = false;
+        for (Segment segment : segments) {
+            if (!segment.kept) {
+                gap = gap || !segment.text.isBlank();
+                continue;
+            }
+            if (gap) {
+                fitted.append(OMITTED).append('\n');
+                gap = false;
+            }
+            fitted.append(segment.text).append('\n');
+        }
+        if (gap) {
+            fitted.append(OMITTED).append('\n');
+        }
+        return fitted.toString();
+    }
+
+    private int[] limits(String model) {
+        return modelLimits.computeIfAbsent(model, m -> new int[]{
+                environment.getProperty("analysis.budget.models." + m + ".num-ctx", Integer.class, defaultNumCtx),
+                environment.getProperty("analysis.budget.models." + m + ".num-predict", Integer.class, defaultNumPredict)});
+    }
+
+    private List<Segment> segments(String text) {
+        List<Segment> segments = new ArrayList<>();
+        int bodyLines = 0;
+        boolean header = true;
+        for (String line : text.split("\n", -1)) {
+            // The sender and subject lines the parsers put first are always kept
+            if (header && (line.startsWith("From: ") || line.startsWith("Subject: "))) {
+                segments.add(new Segment(segments.size(), line, Double.MAX_VALUE));
+                continue;
+            }
+            header = false;
+            for (String part : split(line)) {
+                double score = score(part);
+                if (bodyLines++ < LEADING_LINES && score > 0) {
+                    // The opening lines usually say what the mail is about
+                    score += 1.0;
+                }
+                segments.add(new Segment(segments.size(), part, score));
+            }
+        }
+        return segments;
+    }
+
+    // Long lines, typically HTML converted without line breaks, are cut at sentence ends or spaces
+    private static List<String> split(String line) {
+        if (line.length() <= MAX_SEGMENT_LENGTH) {
+            return List.of(line);
+        }
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (line.length() - start > MAX_SEGMENT_LENGTH) {
+            int limit = start + MAX_SEGMENT_LENGTH;
+            int cut = line.lastIndexOf(". ", limit);
+            if (cut <= start) {
+                cut = line.lastIndexOf(' ', limit);
+            } else {
+                cut++;
+            }
+            if (cut <= start) {
+                cut = limit;
+            }
+            parts.add(line.substring(start, cut).strip());
+            start = cut;
+        }
+        parts.add(line.substring(start).strip());
+        return parts;
+    }
+
+    private double score(String line) {
+        double[] score = {0};
+        boolean hasDigit = false;
+        boolean hasText = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c == '\u20B9' || c == '$' || c == '\u20AC' || c == '\u00A3') {
+                score[0] += 3.0;
+            } else if (Character.isLetter(c)) {
+                hasText = true;
+            }
+        }
+        if (!hasDigit && !hasText) {
+            return 0;
+        }
+        valueKeywords.scan(line, (keyword, start, end) -> score[0] += keywordWeights[keyword]);
+        if (hasDigit) {
+            score[0] += 1.0;
+        }
+        // Plain prose still beats dropping the line, it only loses against the lines above
+        return score[0] + 0.1;
+    }
+
+    private static final class Segment {
+        private final int index;
+        private final String text;
+        private final int tokens;
+        private final double score;
+        private boolean kept;
+
+        Segment(int index, String text, double score) {
+            this.index = index;
+            this.text = text;
+            this.tokens = estimateTokens(text) + 1;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.emailanalyzer.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Callers waiting for a slot of a limiter or a connection to a backend, in arrival
+ * order and at most {@code maxSize} of them. Waiters are futures rather than threads,
+ * so the reactive API waits here without blocking an event loop. The owner's lock
+ * guards the queue along with the slots it counts, so checking for a free slot and
+ * queueing happen in one step.
+ */
+final class WaiterQueue<T> {
+
+    private final ReentrantLock lock;
+    private final int maxSize;
+    // Cheap to remove from when a waiter times out or is cancelled
+    private final Set<CompletableFuture<T>> waiters = new LinkedHashSet<>();
+
+    WaiterQueue(ReentrantLock lock, int maxSize) {
+        this.lock = lock;
+        this.maxSize = maxSize;
+    }
+
+    // isEmpty, isFull, size and add are called with the lock held
+
+    boolean isEmpty() {
+        return waiters.isEmpty();
+    }
+
+    boolean isFull() {
+        return waiters.size() >= maxSize;
+    }
+
+    int size() {
+        return waiters.size();
+    }
+
+    /**
+     * Queues a waiter that fails with {@code timedOut} unless it gets a slot within
+     * {@code timeout}. The caller has checked that the queue is not full.
+     */
+    CompletableFuture<T> add(Duration timeout, Supplier<? extends RuntimeException> timedOut) {
+        CompletableFuture<T> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        waiter.whenComplete((slot, error) -> {
+            if (error != null) {
+                remove(waiter);
+            }
+        });
+        CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (!waiter.isDone()) {
+                RuntimeException error = timedOut.get();
+                // Out of the queue before the caller hears of the timeout
+                remove(waiter);
+                waiter.completeExceptionally(error);
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * Hands slots to the oldest waiters for as long as {@code take} finds one free, called
+     * without the lock. {@code take} and {@code giveBack} run with it held. Waiters are
+     * completed outside the lock, their continuations run on the completing thread.
+     */
+    void grant(Supplier<T> take, Runnable giveBack) {
+        while (true) {
+            CompletableFuture<T> waiter;
+            T slot;
+            lock.lock();
+            try {
+                if (waiters.isEmpty() || (slot = take.get()) == null) {
+                    return;
+                }
+                Iterator<CompletableFuture<T>> oldest = waiters.iterator();
+                waiter = oldest.next();
+                oldest.remove();
+            } finally {
+                lock.unlock();
+            }
+            if (!waiter.complete(slot)) {
+                // It timed out or was cancelled just now, the slot goes to the next one
+                lock.lock();
+                try {
+                    giveBack.run();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void remove(CompletableFuture<T> waiter) {
+        lock.lock();
+        try {
+            waiters.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops waiting, or hands the slot to {@code release} if it was granted in the meantime.
+     */
+    static <T> void cancel(CompletableFuture<T> waiter, Consumer<T> release) {
+        if (!waiter.cancel(false) && !waiter.isCompletedExceptionally()) {
+            release.accept(waiter.join());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.emailanalyzer.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailInputTest {
+
+    @Test
+    void acceptsExactlyOneInput() {
+        assertThat(EmailInput.problem(true, null)).isNull();
+        assertThat(EmailInput.problem(false, "Your OTP is 123456")).isNull();
+    }
+
+    @Test
+    void rejectsBothInputs() {
+        assertThat(EmailInput.problem(true, "text")).isEqualTo("Provide only one of eml_file or text, not both.");
+    }
+
+    @Test
+    void rejectsMissingOrBlankText() {
+        assertThat(EmailInput.problem(false, null)).isEqualTo("No input provided");
+        assertThat(EmailInput.problem(false, "")).isEqualTo("No input provided");
+        assertThat(EmailInput.problem(false, " \n\t")).isEqualTo("No input provided");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit, int maxQueue) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, maxQueue, Duration.ofSeconds(1),
+                Duration.ofSeconds(5));
+    }
+
+    // Fills every slot, then reports each call as taking millisPerToken for each of its tokens
+    private static void round(AdaptiveConcurrencyLimiter limiter, double millisPerToken, int tokens) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = limiter.getLimit(); i > 0; i--) {
+            permits.add(limiter.acquire());
+        }
+        for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+            permit.succeeded(tokens, (long) (TimeUnit.MILLISECONDS.toNanos(1) * millisPerToken * tokens));
+            permit.release();
+        }
+    }
+
+    @Test
+    void growsWhileLatencyStaysFlat() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 1, 64, 10);
+
+        for (int i = 0; i < 3; i++) {
+            round(limiter, 1, 100);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(4);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void shrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 1, 64, 10);
+        round(limiter, 1, 100);
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 5; i++) {
+            round(limiter, 10, 100);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(before);
+    }
+
+    @Test
+    void staysWithinItsBounds() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 2, 8, 10);
+        for (int i = 0; i < 10; i++) {
+            round(limiter, 1, 100);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        for (int i = 0; i < 50; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+            permit.dropped();
+            permit.release();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void longEmailIsNotTakenForCongestion() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 1, 64, 10);
+        round(limiter, 1, 100);
+        int before = limiter.getLimit();
+
+        // A hundred times the tokens and the time, the same per token
+        for (int i = 0; i < 5; i++) {
+            round(limiter, 1, 10_000);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void rejectsCallersBeyondTheQueue() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 1);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquireAsync();
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(ConcurrencyLimitExceededException.class);
+
+        held.release();
+        assertThat(queued).isCompleted();
+    }
+}
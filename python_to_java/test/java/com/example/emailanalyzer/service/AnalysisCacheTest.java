@@ -0,0 +1,82 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.CacheStats;
+import com.example.emailanalyzer.model.EmailAnalysisResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        AnalysisCache cache = new AnalysisCache(true, 2, Duration.ofHours(1));
+        cache.put("a", response("a"));
+        cache.put("b", response("b"));
+        cache.get("a");
+
+        cache.put("c", response("c"));
+
+        assertThat(cache.peek("a")).isNotNull();
+        assertThat(cache.peek("b")).isNull();
+        assertThat(cache.peek("c")).isNotNull();
+        assertThat(cache.stats().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsEntriesOlderThanTheTtl() throws InterruptedException {
+        AnalysisCache cache = new AnalysisCache(true, 10, Duration.ofMillis(20));
+        cache.put("a", response("a"));
+        Thread.sleep(50);
+
+        assertThat(cache.get("a")).isNull();
+        CacheStats stats = cache.stats();
+        assertThat(stats.getExpirations()).isEqualTo(1);
+        assertThat(stats.getSize()).isZero();
+    }
+
+    @Test
+    void countsHitsAndMissesButNotPeeks() {
+        AnalysisCache cache = new AnalysisCache(true, 10, Duration.ofHours(1));
+        cache.put("a", response("a"));
+
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.peek("a");
+        cache.peek("b");
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.getHits()).isEqualTo(2);
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getSize()).isEqualTo(1);
+        assertThat(stats.getMaxEntries()).isEqualTo(10);
+    }
+
+    @Test
+    void keyIgnoresWhitespaceButNotModelOrPromptVersion() {
+        AnalysisCache cache = new AnalysisCache(true, 10, Duration.ofHours(1));
+        String key = cache.key("Your code is 1234", "llama3", "v1");
+
+        assertThat(cache.key("  Your\n code \tis 1234\n", "llama3", "v1")).isEqualTo(key);
+        assertThat(cache.key("Your code is 1234", "mistral", "v1")).isNotEqualTo(key);
+        assertThat(cache.key("Your code is 1234", "llama3", "v2")).isNotEqualTo(key);
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        AnalysisCache cache = new AnalysisCache(false, 10, Duration.ofHours(1));
+        cache.put("a", response("a"));
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.stats().getSize()).isZero();
+    }
+
+    private static EmailAnalysisResponse response(String label) {
+        EmailAnalysisResponse response = new EmailAnalysisResponse();
+        response.setLabel(label);
+        return response;
+    }
+}
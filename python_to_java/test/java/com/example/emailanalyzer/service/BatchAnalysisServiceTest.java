@@ -0,0 +1,57 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.BatchItemResult;
+import com.example.emailanalyzer.support.StubOllamaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchAnalysisServiceTest {
+
+    private static final String OTP_TEXT = "Subject: Your one time password\n\n"
+            + "Your OTP is 482913. It is valid for 10 minutes, do not share it with anyone.";
+
+    private StubOllamaServer stub;
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void failingItemDoesNotAffectTheOthersAndResultsKeepTheInputOrder() throws Exception {
+        // Every model call fails, the rules answer the OTP mails without one
+        stub = new StubOllamaServer(0, StubOllamaServer.Profile.fast().errorRate(1.0)).start();
+        context = StubOllamaContext.context(stub, Map.of("analysis.rules.enabled", true));
+        BatchAnalysisService batch = context.getBean(BatchAnalysisService.class);
+
+        List<BatchItemResult> results = batch.analyzeBatch(List.of(
+                BatchAnalysisService.Item.ofEml("otp.eml", ("From: Bank <otp@bank.example>\r\n"
+                        + "Subject: Your one time password\r\n\r\n"
+                        + "Your OTP is 482913. It is valid for 10 minutes, do not share it with anyone.\r\n")
+                        .getBytes(StandardCharsets.US_ASCII)),
+                BatchAnalysisService.Item.ofText("texts[0]", "Your order #1234 has shipped."),
+                BatchAnalysisService.Item.ofText("texts[1]", OTP_TEXT)));
+
+        assertThat(results).extracting(BatchItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(results).extracting(BatchItemResult::getSource).containsExactly("otp.eml", "texts[0]", "texts[1]");
+        assertThat(results.get(0).getResult().getLabel()).isEqualTo("OTP");
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(1).getResult()).isNull();
+        assertThat(results.get(1).getError()).startsWith("Error processing email: ");
+        assertThat(results.get(2).getResult().getLabel()).isEqualTo("OTP");
+        assertThat(results.get(2).getError()).isNull();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.AnalysisJob;
+import com.example.emailanalyzer.support.StubOllamaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import reactor.core.Disposable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailAnalysisServiceTest {
+
+    private StubOllamaServer stub;
+    private AnnotationConfigApplicationContext context;
+
+    private EmailAnalysisService service(StubOllamaServer.Profile profile, Map<String, Object> overrides)
+            throws IOException {
+        stub = new StubOllamaServer(0, profile).start();
+        context = StubOllamaContext.context(stub, overrides);
+        return context.getBean(EmailAnalysisService.class);
+    }
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void warmUpLoadsTheModelOnEveryBackend() throws Exception {
+        stub = new StubOllamaServer(0, StubOllamaServer.Profile.fast()).start();
+        try (StubOllamaServer other = new StubOllamaServer(0, StubOllamaServer.Profile.fast()).start()) {
+            context = StubOllamaContext.context(stub, Map.of("ollama.urls", stub.url() + "," + other.url(),
+                    "analysis.warmup.enabled", true));
+
+            context.getBean(EmailAnalysisService.class).warmUp();
+
+            assertThat(stub.requests()).isEqualTo(1);
+            assertThat(other.requests()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void jobRunsWhileAdmissionIsSaturated() throws Exception {
+        EmailAnalysisService service = service(StubOllamaServer.Profile.fast()
+                .answers(List.of(StubOllamaServer.ORDER_ANSWER)), Map.of(
+                "analysis.limiter.enabled", false,
+                "analysis.admission.max-concurrent", 1,
+                "analysis.admission.max-queue", 0));
+        AnalysisJobService jobs = context.getBean(AnalysisJobService.class);
+        AdmissionController.Ticket held = context.getBean(AdmissionController.class).admit();
+        try {
+            assertThatThrownBy(() -> service.analyzeEmail("Your order #1234 has shipped."))
+                    .isInstanceOf(AdmissionRejectedException.class);
+
+            String id = jobs.submit("Your order #1234 has shipped.", null).getId();
+
+            await(() -> jobs.get(id).getStatus() != AnalysisJob.Status.QUEUED
+                    && jobs.get(id).getStatus() != AnalysisJob.Status.RUNNING);
+            assertThat(jobs.get(id).getStatus()).isEqualTo(AnalysisJob.Status.SUCCEEDED);
+            assertThat(jobs.get(id).getResult().getLabel()).isEqualTo("Order");
+        } finally {
+            held.release();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 10s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void cancellingAReactiveAnalysisReleasesTheBackend() throws Exception {
+        EmailAnalysisService service = service(StubOllamaServer.Profile.fast().tokensPerSecond(5), Map.of());
+        OllamaBackends.Backend backend = context.getBean(OllamaBackends.class).backends().get(0);
+        AdaptiveConcurrencyLimiter limiter = context.getBean(AdaptiveConcurrencyLimiter.class);
+        AdmissionController admission = context.getBean(AdmissionController.class);
+
+        Disposable analysis = service.analyzeEmailReactive("Your order #1234 has shipped.").subscribe();
+        await(() -> stub.inFlight() == 1);
+        analysis.dispose();
+
+        await(() -> backend.getOutstanding() == 0);
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(admission.getAdmitted()).isZero();
+        await(() -> stub.cancelled() == 1);
+        assertThat(stub.completed()).isZero();
+    }
+}
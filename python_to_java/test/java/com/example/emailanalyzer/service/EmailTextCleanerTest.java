@@ -0,0 +1,55 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailTextCleanerTest {
+
+    private final EmailTextCleaner cleaner = new EmailTextCleaner();
+
+    @Test
+    void dropsFooterParagraphs() {
+        String text = "Your parcel is on its way.\n\n"
+                + "You are receiving this because you signed up.\nUnsubscribe | Privacy policy\n\n"
+                + "Copyright \u00A9 2024 Shop Inc. All rights reserved.";
+
+        assertThat(cleaner.clean(text)).isEqualTo("Your parcel is on its way.");
+    }
+
+    @Test
+    void keepsAmountsInsideAFooter() {
+        String text = "Thanks for shopping.\n\n"
+                + "Total: $19.99\nRs. 1,299.00 charged to your card\nUnsubscribe | Privacy policy";
+
+        assertThat(cleaner.clean(text))
+                .isEqualTo("Thanks for shopping.\n\nTotal: $19.99\nRs. 1,299.00 charged to your card");
+    }
+
+    @Test
+    void keepsOrderAndAddressFieldsInsideAFooter() {
+        String text = "Thanks for shopping.\n\n"
+                + "Order AB-12 ships today\nDeliver to: 4 Park Road, Pune\nThis is an automated message, do not reply.";
+
+        assertThat(cleaner.clean(text))
+                .isEqualTo("Thanks for shopping.\n\nOrder AB-12 ships today\nDeliver to: 4 Park Road, Pune");
+    }
+
+    @Test
+    void keepsLinesThatOnlyMentionLegalWords() {
+        String text = "Your confidential offer code is inside.\n"
+                + "We respect copyright, so the song is not attached.\n"
+                + "Privileged members get early access.";
+
+        assertThat(cleaner.clean(text)).isEqualTo(text);
+    }
+
+    @Test
+    void dropsWholeDisclaimerPhrases() {
+        String text = "See you on Monday.\n\n"
+                + "This email is confidential and may be legally privileged.\n"
+                + "If you are not the intended recipient, delete it.";
+
+        assertThat(cleaner.clean(text)).isEqualTo("See you on Monday.");
+    }
+}
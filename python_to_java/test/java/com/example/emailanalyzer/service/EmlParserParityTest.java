@@ -0,0 +1,43 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The streaming parser is the default, so on every sample it has to give the same text
+ * as the javax.mail one it replaced.
+ */
+class EmlParserParityTest {
+
+    private final StreamingEmlParser streaming = new StreamingEmlParser(100_000);
+    private final JavaMailEmlParser javaMail = new JavaMailEmlParser();
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void streamingParserMatchesJavaMail(Path sample) throws Exception {
+        byte[] eml = Files.readAllBytes(sample);
+
+        String expected = javaMail.parse(eml);
+
+        assertThat(expected).isNotBlank();
+        assertThat(streaming.parse(new ByteArrayInputStream(eml))).isEqualTo(expected);
+    }
+
+    static Stream<Path> samples() throws IOException, URISyntaxException {
+        Path dir = Path.of(EmlParserParityTest.class.getResource("/eml").toURI());
+        // The real marketing mail in the repository's assets, when the tests run from the project root
+        Path asset = Path.of("assets", "zuok.eml");
+        try (Stream<Path> files = Files.list(dir)) {
+            return Stream.concat(files.sorted().toList().stream(), Files.exists(asset) ? Stream.of(asset) : Stream.empty());
+        }
+    }
+}
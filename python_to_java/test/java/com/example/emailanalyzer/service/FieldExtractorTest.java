@@ -0,0 +1,88 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.model.Address;
+import com.example.emailanalyzer.model.ExtractedContent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FieldExtractorTest {
+
+    private final FieldExtractor extractor = new FieldExtractor();
+
+    private ExtractedContent extract(String text) {
+        return extractor.extract(text).getContent();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Delivery in 48 hours 2 days", "Your orders 123456 are ready",
+            "Member for 12 years 3 months", "Call us at 3pm, we are open 24 hours 7 days a week"})
+    void wordsEndingInRsAreNoCurrency(String text) {
+        assertThat(extract(text).getAmount()).isNull();
+    }
+
+    @Test
+    void readsCurrencyWords() {
+        assertThat(extract("Paid Rs. 1,299.00 today").getAmount()).isEqualTo(1299.0);
+        assertThat(extract("Paid Rs499 today").getAmount()).isEqualTo(499.0);
+        assertThat(extract("Refund of INR 250 issued").getAmount()).isEqualTo(250.0);
+    }
+
+    @Test
+    void labelledTotalWinsOverOtherAmounts() {
+        assertThat(extract("Item \u20B9999\nShipping \u20B940\nGrand Total: \u20B91,039.00").getAmount())
+                .isEqualTo(1039.0);
+    }
+
+    @Test
+    void orderIdAfterCapitalsIsNoZip() {
+        ExtractedFields fields = extractor.extract("Order ID 40213 has shipped.");
+
+        assertThat(fields.getContent().getShippingAddress()).isNull();
+    }
+
+    @Test
+    void readsZipAfterCityAndState() {
+        assertThat(extract("123 Main St\nSpringfield, IL 62704").getShippingAddress().getPincode())
+                .isEqualTo("62704");
+    }
+
+    @Test
+    void sixDigitNumberIsAPincodeOnlyAtTheEndOfAnAddressLine() {
+        assertThat(extract("Koramangala, Bengaluru, Karnataka 560034, India").getShippingAddress().getPincode())
+                .isEqualTo("560034");
+
+        ExtractedFields otp = extractor.extract("Your OTP is 482913");
+        assertThat(otp.getContent().getShippingAddress()).isNull();
+        assertThat(otp.getPossiblePincode()).isEqualTo("482913");
+    }
+
+    @Test
+    void keepsShippingAndBillingFieldsApart() {
+        String text = "Shipping address:\nMG Road, Pune 411001\nPhone: 9876543210\n\n"
+                + "Billing address:\nPark Street, Kolkata 700016\nPhone: 9123456780";
+
+        ExtractedContent content = extract(text);
+
+        assertThat(content.getShippingAddress().getPincode()).isEqualTo("411001");
+        assertThat(content.getShippingAddress().getPhoneNumber()).isEqualTo("9876543210");
+        assertThat(content.getBillingAddress().getPincode()).isEqualTo("700016");
+        assertThat(content.getBillingAddress().getPhoneNumber()).isEqualTo("9123456780");
+    }
+
+    @Test
+    void fillsOnlyTheAddressTheFieldsCameFrom() {
+        ExtractedContent extracted = extract("Deliver to: MG Road, Pune 411001\nPhone: 9876543210");
+        ExtractedContent target = new ExtractedContent();
+        target.setBillingAddress(new Address());
+
+        extractor.fillMissing(target, extracted);
+
+        assertThat(target.getShippingAddress().getPhoneNumber()).isEqualTo("9876543210");
+        assertThat(target.getShippingAddress().getPincode()).isEqualTo("411001");
+        assertThat(target.getBillingAddress().getPhoneNumber()).isNull();
+        assertThat(target.getBillingAddress().getPincode()).isNull();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlToTextTest {
+
+    @Test
+    void decodesNamedAndNumericEntities() {
+        assertThat(HtmlToText.convert("Fish &amp; chips &lt;3 &quot;now&quot; &#39;hot&#39; &#x20B9;120 &euro;5&nbsp;off"))
+                .isEqualTo("Fish & chips <3 \"now\" 'hot' \u20B9120 \u20AC5 off");
+    }
+
+    @Test
+    void keepsWhatOnlyLooksLikeAnEntityOrTag() {
+        assertThat(HtmlToText.convert("AT&T &unknown; a < b &#xZZ; R&D")).isEqualTo("AT&T &unknown; a < b &#xZZ; R&D");
+    }
+
+    @Test
+    void skipsScriptsStylesAndComments() {
+        String html = "<head><style type=\"text/css\">p { content: '</p>'; }</style>"
+                + "<script>if (a < b && c > d) { document.write('</scr' + 'ipt>'); }</script></head>"
+                + "<body><!-- hidden <p>text</p> -->Visible</body>";
+
+        assertThat(HtmlToText.convert(html)).isEqualTo("Visible");
+    }
+
+    @Test
+    void breaksLinesAtBlockElementsAndSpacesTableCells() {
+        String html = "<h1>Order</h1><p>Thanks for shopping.</p><table><tr><td>Item</td><td>Qty</td></tr>"
+                + "<tr><td>Shoes</td><td>1</td></tr></table>Line one<br/>Line two<ul><li>a</li><li>b</li></ul>";
+
+        assertThat(HtmlToText.convert(html))
+                .isEqualTo("Order\nThanks for shopping.\nItem Qty\nShoes 1\nLine one\nLine two\na\nb");
+    }
+
+    @Test
+    void collapsesWhitespaceAndDropsZeroWidthPadding() {
+        assertThat(HtmlToText.convert("  Hello,\n\t  <b>world</b>\u200C\u200B\u034F  ! ")).isEqualTo("Hello, world !");
+    }
+
+    @Test
+    void ignoresTagCharactersInsideQuotedAttributes() {
+        assertThat(HtmlToText.convert("<a href=\"/x?a>b\" title='<p>'>link</a> text")).isEqualTo("link text");
+    }
+
+    @Test
+    void givesTheSameTextWhenFedInChunks() {
+        String html = "<p>Total &amp; tax:</p><script>x('</script>')</script><td>\u20B9 1,299.00</td> R&D";
+        StringBuilder chunked = new StringBuilder();
+        HtmlToText converter = new HtmlToText(chunked, Integer.MAX_VALUE);
+        for (int i = 0; i < html.length(); i += 3) {
+            converter.append(html, i, Math.min(html.length(), i + 3));
+        }
+        converter.finish();
+
+        assertThat(chunked.toString()).isEqualTo(HtmlToText.convert(html));
+    }
+
+    @Test
+    void stopsAtTheCharacterLimit() {
+        StringBuilder text = new StringBuilder();
+        HtmlToText converter = new HtmlToText(text, 5);
+        converter.append("<p>abcdefghij</p>", 0, 17);
+
+        assertThat(text.toString()).isEqualTo("abcde");
+        assertThat(converter.isFull()).isTrue();
+    }
+}
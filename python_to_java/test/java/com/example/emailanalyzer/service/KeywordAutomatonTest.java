@@ -0,0 +1,69 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeywordAutomatonTest {
+
+    private static List<String> matches(List<String> keywords, String text) {
+        List<String> found = new ArrayList<>();
+        new KeywordAutomaton(keywords).scan(text, (keyword, start, end) ->
+                found.add(keywords.get(keyword) + "@" + start + "-" + end));
+        return found;
+    }
+
+    @Test
+    void reportsOverlappingAndNestedKeywords() {
+        List<String> keywords = List.of("order", "order number", "number one");
+
+        assertThat(matches(keywords, "order number one"))
+                .containsExactly("order@0-5", "order number@0-12", "number one@6-16");
+    }
+
+    @Test
+    void keywordEndingInsideAnotherIsFoundThroughTheFailureLink() {
+        assertThat(matches(List.of("deals", "sale"), "wholesale deals")).containsExactly("deals@10-15");
+        assertThat(matches(List.of("promo code", "code"), "promo code")).containsExactly("promo code@0-10", "code@6-10");
+    }
+
+    @Test
+    void ignoresCase() {
+        assertThat(matches(List.of("One Time Password"), "Your ONE TIME PASSWORD is")).containsExactly(
+                "One Time Password@5-22");
+    }
+
+    @Test
+    void matchesOnlyWholeWords() {
+        List<String> keywords = List.of("otp", "sale");
+
+        assertThat(matches(keywords, "hotpot resale otp2 sales")).isEmpty();
+        assertThat(matches(keywords, "(otp) sale!")).containsExactly("otp@1-4", "sale@6-10");
+    }
+
+    @Test
+    void checksBoundariesOnlyOnWordEdges() {
+        assertThat(matches(List.of("% off"), "50% off today")).containsExactly("% off@2-7");
+    }
+
+    @Test
+    void matchesAcrossWrappedLines() {
+        assertThat(matches(List.of("verification code"), "your verification\ncode is")).containsExactly(
+                "verification code@5-22");
+    }
+
+    @Test
+    void nonAsciiCharactersBreakAMatch() {
+        assertThat(matches(List.of("cafe"), "caf\u00E9 cafe")).containsExactly("cafe@5-9");
+    }
+
+    @Test
+    void rejectsNonAsciiKeywords() {
+        assertThatThrownBy(() -> new KeywordAutomaton(List.of("caf\u00E9")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.mail.internet.ContentType;
+import javax.mail.internet.InternetHeaders;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MimeEventParserTest {
+
+    private final MimeEventParser parser = new MimeEventParser();
+
+    @Test
+    void skipsPreambleAndEpilogue() throws Exception {
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=\"b\"",
+                "",
+                "This is a multi-part message in MIME format.",
+                "--b",
+                "Content-Type: text/plain",
+                "",
+                "one",
+                "--b",
+                "Content-Type: text/plain",
+                "",
+                "two",
+                "--b--",
+                "epilogue that is not a part",
+                ""));
+
+        assertThat(parts).extracting(Part::body).containsExactly("one", "two");
+    }
+
+    @Test
+    void acceptsTransportPaddingAfterBoundaries() throws Exception {
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b \t",
+                "",
+                "one",
+                "--b  ",
+                "",
+                "two",
+                "--b--\t ",
+                ""));
+
+        assertThat(parts).extracting(Part::body).containsExactly("one", "two");
+    }
+
+    @Test
+    void doesNotTakeLinesThatOnlyStartWithTheBoundaryForDelimiters() throws Exception {
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "",
+                "--bx is text",
+                "--b2",
+                "--b--",
+                ""));
+
+        assertThat(parts).extracting(Part::body).containsExactly("--bx is text\r\n--b2");
+    }
+
+    @Test
+    void keepsLineBreaksInsideBodiesButNotBeforeTheDelimiter() throws Exception {
+        String structure = String.join("\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "Content-Type: text/plain",
+                "",
+                "first line",
+                "second line",
+                "",
+                "--b--",
+                "");
+
+        assertThat(parse(structure)).extracting(Part::body).containsExactly("first line\nsecond line\n");
+        assertThat(parse(structure.replace("\n", "\r\n"))).extracting(Part::body)
+                .containsExactly("first line\r\nsecond line\r\n");
+    }
+
+    @Test
+    void readsHeadersWithBareLineFeeds() throws Exception {
+        List<Part> parts = parse("Subject: lf only\nContent-Type: text/plain;\n charset=us-ascii\n\nbody\n");
+
+        assertThat(parts).singleElement().satisfies(part -> {
+            assertThat(part.contentType()).isEqualTo("text/plain; charset=us-ascii");
+            assertThat(part.body()).isEqualTo("body\n");
+        });
+    }
+
+    @Test
+    void endsTheLastPartAtTheEndOfInputWithoutAClosingBoundary() throws Exception {
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "",
+                "one",
+                "--b",
+                "",
+                "two, cut off",
+                ""));
+
+        // Like javax.mail, the last line break stays as nothing follows it
+        assertThat(parts).extracting(Part::body).containsExactly("one", "two, cut off\r\n");
+    }
+
+    @Test
+    void decodesQuotedPrintableSoftLineBreaks() throws Exception {
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: text/plain",
+                "Content-Transfer-Encoding: quoted-printable",
+                "",
+                "A line that was wrapped=",
+                " by the sender, 2 + 2 =3D 4=",
+                ""));
+
+        assertThat(parts).extracting(Part::body).containsExactly("A line that was wrapped by the sender, 2 + 2 = 4");
+    }
+
+    @Test
+    void decodesBase64LongerThanOneBuffer() throws Exception {
+        String text = "0123456789".repeat(2000);
+        String encoded = Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.US_ASCII));
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "Content-Type: text/plain",
+                "Content-Transfer-Encoding: base64",
+                "",
+                encoded,
+                "--b--",
+                ""));
+
+        assertThat(parts).extracting(Part::body).containsExactly(text);
+    }
+
+    @Test
+    void walksNestedMultipartsAndReportsTheirDepth() throws Exception {
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=outer",
+                "",
+                "--outer",
+                "Content-Type: multipart/alternative; boundary=inner",
+                "",
+                "--inner",
+                "Content-Type: text/plain",
+                "",
+                "plain",
+                "--inner",
+                "Content-Type: text/html",
+                "",
+                "<p>html</p>",
+                "--inner--",
+                "",
+                "--outer",
+                "Content-Type: application/pdf",
+                "",
+                "%PDF",
+                "--outer--",
+                ""));
+
+        assertThat(parts).extracting(Part::contentType, Part::depth, Part::body).containsExactly(
+                tuple("text/plain", 2, "plain"),
+                tuple("text/html", 2, "<p>html</p>"),
+                tuple("application/pdf", 1, "%PDF"));
+    }
+
+    @Test
+    void walksAttachedMessages() throws Exception {
+        List<Part> parts = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "Content-Type: message/rfc822",
+                "",
+                "Subject: forwarded",
+                "Content-Type: text/plain",
+                "",
+                "inner body",
+                "--b--",
+                ""));
+
+        assertThat(parts).extracting(Part::depth, Part::body)
+                .containsExactly(tuple(2, "inner body"));
+    }
+
+    @Test
+    void skipsAndStopsAsTheHandlerAsks() throws Exception {
+        String eml = String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "Content-Type: application/octet-stream",
+                "",
+                "skipped",
+                "--b",
+                "Content-Type: text/plain",
+                "",
+                "read",
+                "--b",
+                "Content-Type: text/csv",
+                "",
+                "never reached",
+                "--b--",
+                "");
+        List<Part> parts = new ArrayList<>();
+        parser.parse(input(eml), new Recorder(parts, type -> type.match("text/plain"), type -> type.match("text/csv")));
+
+        assertThat(parts).extracting(Part::body).containsExactly("read");
+    }
+
+    private List<Part> parse(String eml) throws Exception {
+        List<Part> parts = new ArrayList<>();
+        parser.parse(input(eml), new Recorder(parts, type -> true, type -> false));
+        return parts;
+    }
+
+    private static InputStream input(String eml) {
+        return new ByteArrayInputStream(eml.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private record Part(String contentType, int depth, String body) {
+    }
+
+    private static final class Recorder implements MimeEventParser.Handler {
+        private final List<Part> parts;
+        private final Predicate<ContentType> consume;
+        private final Predicate<ContentType> stop;
+        private int depth;
+
+        Recorder(List<Part> parts, Predicate<ContentType> consume, Predicate<ContentType> stop) {
+            this.parts = parts;
+            this.consume = consume;
+            this.stop = stop;
+        }
+
+        @Override
+        public boolean onMessage(InternetHeaders headers) {
+            return true;
+        }
+
+        @Override
+        public MimeEventParser.Action onPart(InternetHeaders headers, ContentType contentType, int depth) {
+            this.depth = depth;
+            if (stop.test(contentType)) {
+                return MimeEventParser.Action.STOP;
+            }
+            return consume.test(contentType) ? MimeEventParser.Action.CONSUME : MimeEventParser.Action.SKIP;
+        }
+
+        @Override
+        public boolean onBody(InternetHeaders headers, ContentType contentType, InputStream body) throws IOException {
+            // Not readAllBytes, javax.mail's decoders answer its zero-length reads with end of stream
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            body.transferTo(bytes);
+            parts.add(new Part(contentType.toString(), depth, bytes.toString(StandardCharsets.ISO_8859_1)));
+            return true;
+        }
+    }
+}
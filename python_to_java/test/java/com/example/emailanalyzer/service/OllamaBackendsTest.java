@@ -0,0 +1,122 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OllamaBackendsTest {
+
+    private static OllamaBackends backends(int maxConnections, int maxFailures, String... urls) {
+        return new OllamaBackends(List.of(urls), maxConnections, maxFailures, Duration.ofSeconds(30), 3.0,
+                HttpClient.newHttpClient(), Duration.ZERO, Duration.ofSeconds(2));
+    }
+
+    @Test
+    void backendWithoutSamplesCountsAsSlowAsTheSlowestOne() {
+        OllamaBackends backends = backends(8, 3, "http://a", "http://b");
+        OllamaBackends.Backend a = backends.backends().get(0);
+        backends.succeeded(a, TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Scored as zero, b would take both requests while it has not answered yet
+        OllamaBackends.Backend first = backends.acquire(Duration.ofSeconds(1));
+        OllamaBackends.Backend second = backends.acquire(Duration.ofSeconds(1));
+
+        assertThat(List.of(first.getUrl(), second.getUrl())).containsExactlyInAnyOrder("http://a", "http://b");
+    }
+
+    @Test
+    void takesTheNextBestBackendWhenTheBestIsFull() {
+        OllamaBackends backends = backends(1, 3, "http://a", "http://b");
+        OllamaBackends.Backend first = backends.acquire(Duration.ofSeconds(1));
+        backends.succeeded(first, TimeUnit.MILLISECONDS.toNanos(1));
+
+        OllamaBackends.Backend second = backends.tryAcquire();
+
+        assertThat(second).isNotNull();
+        assertThat(second).isNotSameAs(first);
+        assertThat(backends.tryAcquire()).isNull();
+    }
+
+    @Test
+    void timingOutOnAConnectionFailsOnlyTheCaller() {
+        OllamaBackends backends = backends(1, 1, "http://a");
+        OllamaBackends.Backend held = backends.acquire(Duration.ofSeconds(1));
+
+        assertThatThrownBy(() -> backends.acquire(Duration.ofMillis(10)))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(held.isAvailable(System.nanoTime())).isTrue();
+
+        backends.release(held);
+        assertThat(backends.tryAcquire()).isSameAs(held);
+    }
+
+    @Test
+    void oneSlowAnswerDoesNotEjectABackend() {
+        OllamaBackends backends = backends(8, 3, "http://a", "http://b");
+        OllamaBackends.Backend a = backends.backends().get(0);
+        OllamaBackends.Backend b = backends.backends().get(1);
+        for (int i = 0; i < 5; i++) {
+            backends.succeeded(a, TimeUnit.MILLISECONDS.toNanos(100));
+            backends.succeeded(b, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        // A huge email, its average shoots past three times the median for a few answers
+        backends.succeeded(b, TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            backends.succeeded(b, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        assertThat(b.isAvailable(System.nanoTime())).isTrue();
+    }
+
+    @Test
+    void backendThatStaysSlowIsEjected() {
+        OllamaBackends backends = backends(8, 3, "http://a", "http://b");
+        OllamaBackends.Backend a = backends.backends().get(0);
+        OllamaBackends.Backend b = backends.backends().get(1);
+        backends.succeeded(a, TimeUnit.MILLISECONDS.toNanos(100));
+
+        for (int i = 0; i < 4; i++) {
+            backends.succeeded(b, TimeUnit.SECONDS.toNanos(1));
+        }
+        assertThat(b.isAvailable(System.nanoTime())).isTrue();
+        backends.succeeded(b, TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(b.isAvailable(System.nanoTime())).isFalse();
+    }
+
+    @Test
+    void asyncWaiterGetsTheConnectionOnRelease() {
+        OllamaBackends backends = backends(1, 3, "http://a");
+        OllamaBackends.Backend held = backends.acquire(Duration.ofSeconds(1));
+
+        CompletableFuture<OllamaBackends.Backend> waiter = backends.acquireAsync(Duration.ofMinutes(1));
+        assertThat(waiter).isNotDone();
+        backends.release(held);
+
+        assertThat(waiter).isCompletedWithValue(held);
+        assertThat(held.getOutstanding()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheConnectionToTheNext() {
+        OllamaBackends backends = backends(1, 3, "http://a");
+        OllamaBackends.Backend held = backends.acquire(Duration.ofSeconds(1));
+        CompletableFuture<OllamaBackends.Backend> cancelled = backends.acquireAsync(Duration.ofMinutes(1));
+        CompletableFuture<OllamaBackends.Backend> next = backends.acquireAsync(Duration.ofMinutes(1));
+
+        backends.cancel(cancelled);
+        backends.release(held);
+
+        assertThat(next).isCompletedWithValue(held);
+        assertThat(held.getOutstanding()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.support.StubOllamaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OllamaClientTest {
+
+    private StubOllamaServer stub;
+    private AnnotationConfigApplicationContext context;
+
+    private OllamaClient client(StubOllamaServer.Profile profile) throws IOException {
+        stub = new StubOllamaServer(0, profile.answers(List.of(StubOllamaServer.ORDER_ANSWER))).start();
+        context = StubOllamaContext.context(stub, Map.of("ollama.http.read-timeout", "1s"));
+        return context.getBean(OllamaClient.class);
+    }
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void hangsUpOnceTheObjectIsComplete() throws Exception {
+        // About two seconds of chatter after the answer
+        OllamaClient client = client(StubOllamaServer.Profile.fast().tokensPerSecond(200).trailingSentences(40));
+
+        CompletionAccumulator completion = client.generate(new OllamaRequest("stub", "hi"));
+
+        assertThat(completion.getJson()).isEqualTo(StubOllamaServer.ORDER_ANSWER);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (stub.cancelled() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(stub.cancelled()).isEqualTo(1);
+        assertThat(stub.completed()).isZero();
+    }
+
+    @Test
+    void joinsAnObjectSplitAcrossManyChunks() throws IOException {
+        OllamaClient client = client(StubOllamaServer.Profile.fast().tokenLength(1).trailingSentences(0));
+
+        CompletionAccumulator completion = client.generate(new OllamaRequest("stub", "hi"));
+
+        assertThat(completion.getJson()).isEqualTo(StubOllamaServer.ORDER_ANSWER);
+    }
+
+    @Test
+    void stalledStreamHitsTheIdleTimeout() throws IOException {
+        OllamaClient client = client(StubOllamaServer.Profile.fast().tokensPerSecond(0.2));
+
+        assertThatThrownBy(() -> client.generate(new OllamaRequest("stub", "hi")))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("No data from " + stub.url());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.support.StubOllamaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactiveOllamaClientTest {
+
+    private StubOllamaServer stub;
+    private AnnotationConfigApplicationContext context;
+
+    private ReactiveOllamaClient client(StubOllamaServer.Profile profile) throws IOException {
+        stub = new StubOllamaServer(0, profile).start();
+        context = StubOllamaContext.context(stub, Map.of("ollama.http.read-timeout", "2s"));
+        return context.getBean(ReactiveOllamaClient.class);
+    }
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void readsTheAnswer() throws IOException {
+        ReactiveOllamaClient client = client(StubOllamaServer.Profile.fast()
+                .answers(List.of(StubOllamaServer.OFFER_ANSWER)));
+
+        CompletionAccumulator completion = client.generate(new OllamaRequest("stub", "hi")).block(Duration.ofSeconds(10));
+
+        assertThat(completion.getJson()).contains("\"label\": \"Offer\"");
+    }
+
+    @Test
+    void backendThatNeverAnswersTimesOut() throws IOException {
+        ReactiveOllamaClient client = client(StubOllamaServer.Profile.fast().timeToFirstToken(Duration.ofSeconds(30)));
+        OllamaBackends.Backend backend = context.getBean(OllamaBackends.class).backends().get(0);
+
+        assertThatThrownBy(() -> client.generate(new OllamaRequest("stub", "hi")).block(Duration.ofSeconds(10)))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("No response from " + stub.url());
+        assertThat(backend.getOutstanding()).isZero();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+    private final RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+
+    @Test
+    void cancelsTheLoaderOnceEveryCallerHasCancelled() {
+        CompletableFuture<String> loading = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.executeAsync("k", () -> loading);
+        CompletableFuture<String> second = coalescer.executeAsync("k", () -> CompletableFuture.completedFuture("other"));
+
+        first.cancel(false);
+        assertThat(loading).isNotDone();
+        assertThat(second).isNotDone();
+
+        second.cancel(false);
+        assertThat(loading).isCancelled();
+        assertThat(coalescer.inFlightCount()).isZero();
+    }
+
+    @Test
+    void callerAfterAnAbandonedLoadStartsAFreshOne() {
+        CompletableFuture<String> abandoned = new CompletableFuture<>();
+        coalescer.executeAsync("k", () -> abandoned).cancel(false);
+
+        CompletableFuture<String> next = coalescer.executeAsync("k", () -> CompletableFuture.completedFuture("fresh"));
+
+        assertThat(next).isCompletedWithValue("fresh");
+    }
+
+    @Test
+    void concurrentCallersWithTheSameKeyShareOneLoad() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> coalescer.execute("k", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "result";
+                })));
+            }
+            // Every caller but the loader is waiting on its result before it is let go
+            while (loads.get() == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+            }
+            assertThat(loads).hasValue(1);
+            assertThat(coalescer.inFlightCount()).isZero();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void loaderFailureReachesEveryWaitingCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> coalescer.execute("k", () -> {
+                await(release);
+                throw new IllegalStateException("model down");
+            }));
+            while (coalescer.inFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+            Future<String> follower = pool.submit(() -> coalescer.execute("k", () -> "not called"));
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : List.of(leader, follower)) {
+                assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                        .isInstanceOf(ExecutionException.class)
+                        .cause().isInstanceOf(IllegalStateException.class).hasMessage("model down");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncLoaderFailureReachesEveryCaller() {
+        CompletableFuture<String> loading = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.executeAsync("k", () -> loading);
+        CompletableFuture<String> second = coalescer.executeAsync("k", () -> CompletableFuture.completedFuture("other"));
+
+        loading.completeExceptionally(new IllegalStateException("model down"));
+
+        for (CompletableFuture<String> result : List.of(first, second)) {
+            assertThat(result).isCompletedExceptionally();
+            assertThatThrownBy(result::join).cause().isInstanceOf(IllegalStateException.class).hasMessage("model down");
+        }
+        assertThat(coalescer.inFlightCount()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleBasedClassifierTest {
+
+    // analysis.rules.min-confidence
+    private static final double MIN_CONFIDENCE = 0.9;
+
+    private final RuleBasedClassifier classifier = new RuleBasedClassifier();
+
+    @Test
+    void obviousOtpMailClearsTheThreshold() {
+        RuleClassification result = classifier.classify("From: Bank <otp@bank.example>\n"
+                + "Subject: Your one time password\n\n"
+                + "Your OTP is 482913. It is valid for 10 minutes, do not share it with anyone.");
+
+        assertThat(result.getLabel()).isEqualTo("OTP");
+        assertThat(result.getConfidence()).isGreaterThanOrEqualTo(MIN_CONFIDENCE);
+    }
+
+    @Test
+    void obviousOfferMailClearsTheThreshold() {
+        RuleClassification result = classifier.classify("From: Shop <offers@shop.example>\n"
+                + "Subject: Flat 50% off, limited time\n\n"
+                + "Use coupon SAVE50 at checkout. Shop now, the sale ends Sunday.\nUnsubscribe");
+
+        assertThat(result.getLabel()).isEqualTo("Offer");
+        assertThat(result.getConfidence()).isGreaterThanOrEqualTo(MIN_CONFIDENCE);
+    }
+
+    @Test
+    void otpKeywordWithoutACodeStaysBelowTheThreshold() {
+        RuleClassification result = classifier.classify("Subject: Security settings\n\n"
+                + "You turned on OTP login for your account.");
+
+        assertThat(result.getLabel()).isEqualTo("OTP");
+        assertThat(result.getConfidence()).isLessThan(MIN_CONFIDENCE);
+    }
+
+    @Test
+    void transactionalKeywordsKeepAnOrderMailBelowTheThreshold() {
+        RuleClassification result = classifier.classify("From: Shop <offers@shop.example>\n"
+                + "Subject: Order confirmed\n\n"
+                + "Your order number 40213 has shipped. Invoice attached. Use coupon NEXT10 next time.");
+
+        assertThat(result.getConfidence()).isLessThan(MIN_CONFIDENCE);
+    }
+
+    @Test
+    void amountIsNoOtpCode() {
+        RuleClassification withAmount = classifier.classify("Your verification code request for Rs. 1,299.00 is noted.");
+        RuleClassification withCode = classifier.classify("Your verification code is 1299.");
+
+        assertThat(withAmount.getConfidence()).isLessThan(withCode.getConfidence());
+    }
+
+    @Test
+    void mailWithoutKeywordsHasNoLabel() {
+        assertThat(classifier.classify("Hello team, notes from today's meeting are attached."))
+                .isSameAs(RuleClassification.NONE);
+    }
+}
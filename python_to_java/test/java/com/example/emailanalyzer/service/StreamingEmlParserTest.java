@@ -0,0 +1,164 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingEmlParserTest {
+
+    private final StreamingEmlParser parser = new StreamingEmlParser(100_000);
+
+    @Test
+    void putsSenderAndDecodedSubjectBeforeTheBody() throws Exception {
+        String text = parse(String.join("\r\n",
+                "From: Shop <orders@shop.example>",
+                "Subject: =?UTF-8?B?" + base64("Commande confirm\u00E9e", StandardCharsets.UTF_8) + "?=",
+                "Content-Type: text/plain",
+                "",
+                "Thanks for your order.",
+                ""));
+
+        assertThat(text).isEqualTo("From: Shop <orders@shop.example>\nSubject: Commande confirm\u00E9e\n\n"
+                + "Thanks for your order.\r\n");
+    }
+
+    @Test
+    void decodesBase64TextInTheDeclaredCharset() throws Exception {
+        String body = "Total: \u00A3 12.50, caf\u00E9";
+        String text = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "Content-Type: text/plain; charset=\"ISO-8859-1\"",
+                "Content-Transfer-Encoding: base64",
+                "",
+                base64(body, StandardCharsets.ISO_8859_1),
+                "--b--",
+                ""));
+
+        assertThat(text).isEqualTo(body);
+    }
+
+    @Test
+    void mapsMimeCharsetNamesToJavaOnes() throws Exception {
+        byte[] body = "\u20AC 5".getBytes(Charset.forName("windows-1252"));
+        String text = parse(String.join("\r\n",
+                "Content-Type: text/plain; charset=cp1252",
+                "Content-Transfer-Encoding: quoted-printable",
+                "",
+                "=" + String.format("%02X", body[0] & 0xff) + " 5",
+                ""));
+
+        assertThat(text).isEqualTo("\u20AC 5\r\n");
+    }
+
+    @Test
+    void fallsBackToUtf8ForUnknownCharsets() throws Exception {
+        String text = parse(String.join("\r\n",
+                "Content-Type: text/plain; charset=x-no-such-charset",
+                "Content-Transfer-Encoding: 8bit",
+                "",
+                "na\u00EFve",
+                ""), StandardCharsets.UTF_8);
+
+        assertThat(text).isEqualTo("na\u00EFve\r\n");
+    }
+
+    @Test
+    void readsBareLineFeedMessagesLikeCrlfOnes() throws Exception {
+        String crlf = String.join("\r\n",
+                "Subject: Hi",
+                "Content-Type: multipart/mixed; boundary=b",
+                "",
+                "--b",
+                "Content-Type: text/plain",
+                "",
+                "hello",
+                "--b--",
+                "");
+
+        assertThat(parse(crlf.replace("\r\n", "\n"))).isEqualTo(parse(crlf)).isEqualTo("Subject: Hi\n\nhello");
+    }
+
+    @Test
+    void takesPlainTextFromAlternativeNestedInMixedAndSkipsAttachments() throws Exception {
+        String text = parse(String.join("\r\n",
+                "Content-Type: multipart/mixed; boundary=outer",
+                "",
+                "--outer",
+                "Content-Type: multipart/alternative; boundary=inner",
+                "",
+                "--inner",
+                "Content-Type: text/plain; charset=utf-8",
+                "",
+                "Your order has shipped.",
+                "--inner",
+                "Content-Type: text/html",
+                "",
+                "<p>Your order has <b>shipped</b>.</p>",
+                "--inner--",
+                "",
+                "--outer",
+                "Content-Type: text/plain; name=invoice.txt",
+                "Content-Disposition: attachment; filename=invoice.txt",
+                "",
+                "attached text",
+                "--outer",
+                "Content-Type: application/pdf",
+                "Content-Transfer-Encoding: base64",
+                "",
+                "JVBERi0xLjQK",
+                "--outer--",
+                ""));
+
+        assertThat(text).isEqualTo("Your order has shipped.\nattached text");
+    }
+
+    @Test
+    void convertsHtmlWhenThereIsNoPlainText() throws Exception {
+        String text = parse(String.join("\r\n",
+                "Content-Type: multipart/alternative; boundary=b",
+                "",
+                "--b",
+                "Content-Type: text/plain",
+                "",
+                "  ",
+                "--b",
+                "Content-Type: text/html; charset=utf-8",
+                "Content-Transfer-Encoding: quoted-printable",
+                "",
+                "<html><head><style>p { color: red }</style></head><body><p>Order total:=",
+                " &#8377;499</p><p>Thanks &amp; regards</p></body></html>",
+                "--b--",
+                ""));
+
+        assertThat(text).isEqualTo("  Order total: \u20B9499\nThanks & regards");
+    }
+
+    @Test
+    void stopsAtTheTextLimit() throws Exception {
+        StreamingEmlParser limited = new StreamingEmlParser(10);
+        String eml = "Content-Type: text/plain\r\n\r\n" + "x".repeat(1000);
+
+        String text = limited.parse(new ByteArrayInputStream(eml.getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(text).isEqualTo("x".repeat(10));
+    }
+
+    private String parse(String eml) throws Exception {
+        return parse(eml, StandardCharsets.ISO_8859_1);
+    }
+
+    private String parse(String eml, Charset charset) throws Exception {
+        return parser.parse(new ByteArrayInputStream(eml.getBytes(charset)));
+    }
+
+    private static String base64(String text, Charset charset) {
+        return Base64.getEncoder().encodeToString(text.getBytes(charset));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.emailanalyzer.service;
+
+import com.example.emailanalyzer.config.OllamaHttpClientConfig;
+import com.example.emailanalyzer.config.OllamaWebClientConfig;
+import com.example.emailanalyzer.support.StubOllamaServer;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Wires the services in a small Spring context over application.properties, with the real HTTP
+// clients pointed at a StubOllamaServer
+final class StubOllamaContext {
+
+    private StubOllamaContext() {
+    }
+
+    // Cache and rules are off so every call reaches the model, health checks too so only the test talks to the stub
+    static AnnotationConfigApplicationContext context(StubOllamaServer stub, Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>(Map.of(
+                "ollama.urls", stub.url(),
+                "ollama.backends.health-check-interval", "0s",
+                "analysis.cache.enabled", false,
+                "analysis.rules.enabled", false,
+                "analysis.warmup.enabled", false));
+        properties.putAll(overrides);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        MutablePropertySources sources = context.getEnvironment().getPropertySources();
+        try {
+            sources.addFirst(new ResourcePropertySource("classpath:application.properties"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sources.addFirst(new MapPropertySource("test", properties));
+
+        context.registerBean(WebClient.Builder.class, WebClient::builder);
+        context.register(OllamaHttpClientConfig.class, OllamaWebClientConfig.class,
+                OllamaBackends.class, OllamaClient.class, ReactiveOllamaClient.class, AnalysisCache.class,
+                RuleBasedClassifier.class, FieldExtractor.class, EmailTextCleaner.class, TokenBudget.class,
+                AdaptiveConcurrencyLimiter.class, AdmissionController.class, JavaMailEmlParser.class,
+                StreamingEmlParser.class, EmailAnalysisService.class, AnalysisJobService.class,
+                BatchAnalysisService.class);
+        context.refresh();
+        return context;
+    }
+}
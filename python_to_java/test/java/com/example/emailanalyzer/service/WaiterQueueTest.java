@@ -0,0 +1,90 @@
+package com.example.emailanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WaiterQueueTest {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final WaiterQueue<Integer> queue = new WaiterQueue<>(lock, 2);
+    private int free;
+    private int granted;
+
+    private CompletableFuture<Integer> add(Duration timeout) {
+        lock.lock();
+        try {
+            return queue.add(timeout, () -> new IllegalStateException("timed out"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grant() {
+        queue.grant(this::takeSlot, () -> free++);
+    }
+
+    private Integer takeSlot() {
+        if (free == 0) {
+            return null;
+        }
+        free--;
+        return ++granted;
+    }
+
+    @Test
+    void grantsInArrivalOrderWhileSlotsAreFree() {
+        CompletableFuture<Integer> first = add(Duration.ofMinutes(1));
+        CompletableFuture<Integer> second = add(Duration.ofMinutes(1));
+        assertThat(queue.isFull()).isTrue();
+
+        free = 1;
+        grant();
+
+        assertThat(first).isCompletedWithValue(1);
+        assertThat(second).isNotDone();
+        assertThat(queue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void timedOutWaiterLeavesTheQueue() {
+        CompletableFuture<Integer> waiter = add(Duration.ofMillis(10));
+
+        assertThatThrownBy(waiter::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void cancellingAfterTheGrantReleasesTheSlot() {
+        CompletableFuture<Integer> waiter = add(Duration.ofMinutes(1));
+        free = 1;
+        grant();
+        List<Integer> released = new ArrayList<>();
+
+        WaiterQueue.cancel(waiter, released::add);
+
+        assertThat(released).containsExactly(1);
+    }
+
+    @Test
+    void slotOfACancelledWaiterGoesToTheNextOne() {
+        CompletableFuture<Integer> cancelled = add(Duration.ofMinutes(1));
+        CompletableFuture<Integer> next = add(Duration.ofMinutes(1));
+        WaiterQueue.cancel(cancelled, slot -> {
+        });
+        free = 1;
+
+        grant();
+
+        assertThat(cancelled).isCancelled();
+        assertThat(next).isCompletedWithValue(1);
+        assertThat(free).isZero();
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.emailanalyzer.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stand-in for Ollama's {@code /api/generate} and {@code /api/chat} for load tests and benchmarks.
+ * Streams a canned answer as NDJSON fragments with a configurable time to first token, token rate
+ * and error rate. {@code GET /stats} reports the counters when the stub runs in its own process.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.emailanalyzer.support.StubOllamaServer -Dexec.args="11434 cpu"
+ * </pre>
+ *
+ * The second argument is a profile name or a token rate such as {@code 2500}, which is the
+ * {@code fast} profile at that many tokens per second.
+ */
+public class StubOllamaServer implements AutoCloseable {
+
+    public static final String ORDER_ANSWER = """
+            {"label": "Order", "extracted_content": {"products": ["Widget"], "amount": 19.99, \
+            "shipping_address": {"address_line1": "123 Main St.", "address_line2": "Apt 4B", "city": "Springfield", \
+            "state": "IL", "pincode": "62704", "phone_number": "555-123-4567"}, "billing_address": null}}""";
+
+    public static final String OFFER_ANSWER = """
+            {"label": "Offer", "extracted_content": {"products": [], "amount": null, \
+            "shipping_address": null, "billing_address": null}}""";
+
+    private final Profile profile;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong peakInFlight = new AtomicLong();
+
+    public StubOllamaServer(int port, Profile profile) throws IOException {
+        this.profile = profile;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        // One thread per open stream, like a backend that accepts everything and slows down instead
+        this.executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/api/generate", exchange -> generate(exchange, false));
+        server.createContext("/api/chat", exchange -> generate(exchange, true));
+        server.createContext("/api/version", exchange -> respond(exchange, 200, "{\"version\":\"stub\"}"));
+        server.createContext("/stats", exchange -> respond(exchange, 200, statsJson()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 11434;
+        Profile profile = Profile.parse(args.length > 1 ? args[1] : "cpu");
+        StubOllamaServer server = new StubOllamaServer(port, profile).start();
+        System.out.println("Stub Ollama listening on " + server.url() + " with profile " + profile);
+    }
+
+    public StubOllamaServer start() {
+        server.start();
+        return this;
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long completed() {
+        return completed.get();
+    }
+
+    // Streams the client hung up on before the end, e.g. after the JSON object closed
+    public long cancelled() {
+        return cancelled.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    // Most streams open at once since the start, i.e. how much concurrency the client under test reached
+    public long peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public String statsJson() {
+        return "{\"requests\":" + requests() + ",\"completed\":" + completed() + ",\"cancelled\":" + cancelled()
+                + ",\"errors\":" + errors() + ",\"inFlight\":" + inFlight() + ",\"peakInFlight\":" + peakInFlight() + "}";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void generate(HttpExchange exchange, boolean chat) {
+        requests.incrementAndGet();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try (exchange) {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            pause(profile.timeToFirstToken.toNanos());
+
+            if (ThreadLocalRandom.current().nextDouble() < profile.errorRate) {
+                errors.incrementAndGet();
+                respond(exchange, 500, "{\"error\":\"stub: simulated model failure\"}");
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            String answer = profile.answers.get((int) (requests.get() % profile.answers.size()));
+            String text = answer + " " + "Let me know if you need anything else. ".repeat(profile.trailingSentences);
+            double tokenDelayNanos = 1_000_000_000L / profile.tokensPerSecond;
+            // Each token is due at a fixed time from the start, so delays far below a millisecond
+            // add up to the rate instead of being lost, and late wake-ups do not slow it further
+            long start = System.nanoTime();
+            int tokens = 0;
+            for (int i = 0; i < text.length(); i += profile.tokenLength) {
+                String fragment = text.substring(i, Math.min(text.length(), i + profile.tokenLength));
+                writeLine(out, chunk(chat, escape(fragment), false));
+                tokens++;
+                pause(start + (long) (tokens * tokenDelayNanos) - System.nanoTime());
+            }
+            writeLine(out, chunk(chat, "", true));
+            completed.incrementAndGet();
+        } catch (IOException e) {
+            // The client hung up, before the answer started as well as in the middle of it
+            cancelled.incrementAndGet();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static String chunk(boolean chat, String escapedText, boolean done) {
+        return chat
+                ? "{\"model\":\"stub\",\"message\":{\"role\":\"assistant\",\"content\":\"" + escapedText + "\"},\"done\":" + done + "}"
+                : "{\"model\":\"stub\",\"response\":\"" + escapedText + "\",\"done\":" + done + "}";
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static String escape(String fragment) {
+        return fragment.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void pause(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long left = nanos;
+        // parkNanos may return early, and returns at once when the server shuts down and interrupts
+        while (left > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(left);
+            left = deadline - System.nanoTime();
+        }
+    }
+
+    public static class Profile {
+        private Duration timeToFirstToken = Duration.ofMillis(50);
+        private double tokensPerSecond = 200;
+        private int tokenLength = 4;
+        private double errorRate;
+        private int trailingSentences = 5;
+        private List<String> answers = List.of(ORDER_ANSWER, OFFER_ANSWER);
+
+        // Instant answers, for measuring our own overhead
+        public static Profile fast() {
+            return new Profile().timeToFirstToken(Duration.ZERO).tokensPerSecond(100_000);
+        }
+
+        // Roughly mistral on a CPU-only inference box
+        public static Profile cpu() {
+            return new Profile().timeToFirstToken(Duration.ofMillis(1500)).tokensPerSecond(12);
+        }
+
+        // A saturated backend that also fails now and then
+        public static Profile overloaded() {
+            return new Profile().timeToFirstToken(Duration.ofSeconds(5)).tokensPerSecond(4).errorRate(0.05);
+        }
+
+        // A profile name, or a token rate for the fast profile
+        public static Profile parse(String value) {
+            try {
+                return fast().tokensPerSecond(Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                return named(value);
+            }
+        }
+
+        public static Profile named(String name) {
+            return switch (name) {
+                case "fast" -> fast();
+                case "cpu" -> cpu();
+                case "overloaded" -> overloaded();
+                default -> throw new IllegalArgumentException(
+                        "Unknown profile " + name + ", use fast, cpu, overloaded or a number of tokens per second");
+            };
+        }
+
+        public Profile timeToFirstToken(Duration timeToFirstToken) {
+            this.timeToFirstToken = timeToFirstToken;
+            return this;
+        }
+
+        public Profile tokensPerSecond(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Profile tokenLength(int tokenLength) {
+            this.tokenLength = tokenLength;
+            return this;
+        }
+
+        public Profile errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Profile trailingSentences(int trailingSentences) {
+            this.trailingSentences = trailingSentences;
+            return this;
+        }
+
+        public Profile answers(List<String> answers) {
+            this.answers = answers;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "ttft=" + timeToFirstToken.toMillis() + "ms, " + tokensPerSecond + " tok/s, errors=" + errorRate;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.emailanalyzer.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StubOllamaServerTest {
+
+    @Test
+    void keepsRatesAboveAThousandTokensPerSecond() throws Exception {
+        int tokens = StubOllamaServer.OFFER_ANSWER.length() + 1;
+        StubOllamaServer.Profile profile = StubOllamaServer.Profile.parse("2000")
+                .tokenLength(1).trailingSentences(0).answers(List.of(StubOllamaServer.OFFER_ANSWER));
+        try (StubOllamaServer stub = new StubOllamaServer(0, profile).start()) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(stub.url() + "/api/generate"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                    .build();
+
+            long start = System.nanoTime();
+            HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Half a millisecond per token, which whole-millisecond sleeps rounded down to nothing
+            assertThat(elapsedMillis).isGreaterThanOrEqualTo(tokens / 2 - 10);
+            assertThat(stub.completed()).isEqualTo(1);
+        }
+    }
+}
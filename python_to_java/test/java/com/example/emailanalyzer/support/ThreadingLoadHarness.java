@@ -0,0 +1,207 @@
+package com.example.emailanalyzer.support;
+
+import com.example.emailanalyzer.EmailAnalyzerApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for thread-per-request handling. Runs the application in this JVM against a
+ * {@link StubOllamaServer} in a child process, opens {@code concurrency} requests at once and
+ * reports how many reached the model together, the heap and thread stack memory they held while
+ * waiting, and the latency.
+ *
+ * <p>The concurrency limiter and admission control are switched off so the Tomcat thread pool is
+ * the only cap. Run it in a fresh JVM, with native memory tracking for the thread stack figures:
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -XX:NativeMemoryTracking=summary -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *     com.example.emailanalyzer.support.ThreadingLoadHarness 1000 cpu
+ * </pre>
+ *
+ * The numbers include this harness' own client side.
+ */
+public class ThreadingLoadHarness {
+
+    private static final Pattern THREAD_NMT = Pattern.compile("- +Thread \\(reserved=(\\d+)KB, committed=(\\d+)KB\\)");
+    private static final Pattern STAT = Pattern.compile("\"(\\w+)\":(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        String profile = args.length > 1 ? args[1] : "cpu";
+        int stubPort = args.length > 2 ? Integer.parseInt(args[2]) : 18434;
+
+        Process stub = startStub(stubPort, profile);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(2))
+                .build();
+        String stubUrl = "http://127.0.0.1:" + stubPort;
+        try (ConfigurableApplicationContext app = SpringApplication.run(EmailAnalyzerApplication.class,
+                "--server.port=0",
+                "--server.tomcat.max-connections=" + Math.max(8192, concurrency + 100),
+                "--ollama.url=" + stubUrl,
+                "--ollama.http.max-connections-per-route=" + Integer.MAX_VALUE,
+                "--ollama.http.connection-request-timeout=10m",
+                "--ollama.http.read-timeout=10m",
+                "--analysis.limiter.enabled=false",
+                "--analysis.admission.enabled=false",
+                "--analysis.cache.enabled=false",
+                "--analysis.rules.enabled=false",
+                "--analysis.warmup.enabled=false",
+                "--logging.level.root=WARN")) {
+            int port = ((ServletWebServerApplicationContext) app).getWebServer().getPort();
+            URI analyze = URI.create("http://127.0.0.1:" + port + "/api/analyze-email");
+            Sample baseline = Sample.take();
+
+            long start = System.nanoTime();
+            List<CompletableFuture<Long>> responses = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                responses.add(post(client, analyze, i));
+            }
+
+            // Measure once the stub stops seeing new streams, every request is then either at the model or queued
+            long peak = 0;
+            long steadySince = System.nanoTime();
+            while (System.nanoTime() - steadySince < 1_000_000_000L
+                    && !responses.stream().allMatch(CompletableFuture::isDone)) {
+                Thread.sleep(100);
+                long inFlight = stat(client, stubUrl, "inFlight");
+                if (inFlight > peak) {
+                    peak = inFlight;
+                    steadySince = System.nanoTime();
+                }
+            }
+            Sample loaded = Sample.take();
+            long heldRequests = Math.max(1, stat(client, stubUrl, "inFlight"));
+
+            long[] latencies = new long[concurrency];
+            int failed = 0;
+            for (int i = 0; i < concurrency; i++) {
+                latencies[i] = responses.get(i).join();
+                if (latencies[i] < 0) {
+                    failed++;
+                    latencies[i] = -latencies[i];
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+
+            System.out.printf("Java %d, %d concurrent requests, stub profile %s%n",
+                    Runtime.version().feature(), concurrency, profile);
+            System.out.printf("  max in flight at the model: %d%n", stat(client, stubUrl, "peakInFlight"));
+            System.out.printf("  platform threads: %d -> %d%n", baseline.threads, loaded.threads);
+            System.out.printf("  heap per waiting request: %.1f KB%n",
+                    (loaded.heapBytes - baseline.heapBytes) / 1024.0 / heldRequests);
+            if (baseline.threadStackKb >= 0) {
+                System.out.printf("  thread stacks per waiting request: %.1f KB committed%n",
+                        (double) (loaded.threadStackKb - baseline.threadStackKb) / heldRequests);
+            } else {
+                System.out.println("  thread stacks: start with -XX:NativeMemoryTracking=summary to measure");
+            }
+            System.out.printf("  latency p50 %d ms, p99 %d ms, max %d ms; %.1f requests/s, %d failed%n",
+                    latencies[concurrency / 2] / 1_000_000, latencies[(int) (concurrency * 0.99)] / 1_000_000,
+                    latencies[concurrency - 1] / 1_000_000, concurrency / seconds, failed);
+        } finally {
+            stub.destroy();
+        }
+        System.exit(0);
+    }
+
+    // Completes with the latency in nanoseconds, negative when the request failed
+    private static CompletableFuture<Long> post(HttpClient client, URI analyze, int i) {
+        String text = "Hello team,\nnotes from meeting " + i + " on the quarterly plan are attached.\nRegards, Sam";
+        HttpRequest request = HttpRequest.newBuilder(analyze)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("text=" + URLEncoder.encode(text, StandardCharsets.UTF_8)))
+                .build();
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    long latency = System.nanoTime() - start;
+                    return error == null && response.statusCode() == 200 ? latency : -latency;
+                });
+    }
+
+    private static Process startStub(int port, String profile) throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                StubOllamaServer.class.getName(), String.valueOf(port), profile)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(new File("stub-ollama.log"))
+                .start();
+        HttpClient client = HttpClient.newHttpClient();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/version")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                return process;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        process.destroy();
+        throw new IllegalStateException("Stub Ollama did not start on port " + port);
+    }
+
+    private static long stat(HttpClient client, String stubUrl, String name) throws Exception {
+        String json = client.send(HttpRequest.newBuilder(URI.create(stubUrl + "/stats")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = STAT.matcher(json);
+        while (matcher.find()) {
+            if (matcher.group(1).equals(name)) {
+                return Long.parseLong(matcher.group(2));
+            }
+        }
+        throw new IllegalStateException("No " + name + " in " + json);
+    }
+
+    private static final class Sample {
+        private long heapBytes;
+        private int threads;
+        private long threadStackKb = -1;
+
+        static Sample take() {
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            System.gc();
+            System.gc();
+            Sample sample = new Sample();
+            sample.heapBytes = memory.getHeapMemoryUsage().getUsed();
+            sample.threads = threads.getThreadCount();
+            try {
+                String summary = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                        new ObjectName("com.sun.management:type=DiagnosticCommand"), "vmNativeMemory",
+                        new Object[]{new String[]{"summary"}}, new String[]{String[].class.getName()});
+                Matcher matcher = THREAD_NMT.matcher(summary);
+                if (matcher.find()) {
+                    sample.threadStackKb = Long.parseLong(matcher.group(2));
+                }
+            } catch (Exception e) {
+                // Native memory tracking is optional
+            }
+            return sample;
+        }
+    }
+}